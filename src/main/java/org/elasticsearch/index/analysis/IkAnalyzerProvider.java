@@ -4,6 +4,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.IndexSettings;
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.ConfigurationRegistry;
 import org.wltea.analyzer.lucene.IKAnalyzer;
 
 public class IkAnalyzerProvider extends AbstractIndexAnalyzerProvider<IKAnalyzer> {
@@ -12,7 +13,7 @@ public class IkAnalyzerProvider extends AbstractIndexAnalyzerProvider<IKAnalyzer
     public IkAnalyzerProvider(IndexSettings indexSettings, Environment env, String name, Settings settings,boolean useSmart) {
         super(indexSettings, name, settings);
 
-        Configuration configuration=new Configuration(env,settings).setUseSmart(useSmart);
+        Configuration configuration=ConfigurationRegistry.get(env,settings,useSmart);
 
         analyzer=new IKAnalyzer(configuration);
     }
@@ -5,27 +5,23 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.IndexSettings;
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.ConfigurationRegistry;
 import org.wltea.analyzer.lucene.IKTokenizer;
 
 public class IkTokenizerFactory extends AbstractTokenizerFactory {
-  private Configuration configuration;
+  private final Configuration configuration;
 
-  public IkTokenizerFactory(IndexSettings indexSettings, Environment env, String name, Settings settings) {
+  public IkTokenizerFactory(IndexSettings indexSettings, Environment env, String name, Settings settings, boolean useSmart) {
       super(indexSettings, settings,name);
-	  configuration=new Configuration(env,settings);
+	  configuration=ConfigurationRegistry.get(env,settings,useSmart);
   }
 
   public static IkTokenizerFactory getIkTokenizerFactory(IndexSettings indexSettings, Environment env, String name, Settings settings) {
-      return new IkTokenizerFactory(indexSettings,env, name, settings).setSmart(false);
+      return new IkTokenizerFactory(indexSettings,env, name, settings, false);
   }
 
   public static IkTokenizerFactory getIkSmartTokenizerFactory(IndexSettings indexSettings, Environment env, String name, Settings settings) {
-      return new IkTokenizerFactory(indexSettings,env, name, settings).setSmart(true);
-  }
-
-  public IkTokenizerFactory setSmart(boolean smart){
-        this.configuration.setUseSmart(smart);
-        return this;
+      return new IkTokenizerFactory(indexSettings,env, name, settings, true);
   }
 
   @Override
@@ -0,0 +1,52 @@
+package org.elasticsearch.plugin.analysis.ik;
+
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+
+/**
+ * 当前节点的词典是否就绪
+ * GET _ik/ready ，返回JSON，ready为远程词典和数据库是否加载完成，version为当前词典的版本，加载完成后状态码为200，此前为503
+ */
+public class RestIkReadyAction extends BaseRestHandler {
+
+    @Override
+    public String getName() {
+        return "ik_ready_action";
+    }
+
+    @Override
+    public List<Route> routes() {
+        return Collections.singletonList(new Route(GET, "/_ik/ready"));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) {
+        return channel -> {
+            Dictionary dictionary;
+            try {
+                dictionary = Dictionary.getSingleton();
+            } catch (IllegalStateException e) {
+                // 节点启动时词典初始化失败或尚未完成
+                channel.sendResponse(new BytesRestResponse(channel, RestStatus.SERVICE_UNAVAILABLE, e));
+                return;
+            }
+            boolean ready = dictionary.isReady();
+            XContentBuilder builder = channel.newBuilder();
+            builder.startObject();
+            builder.field("ready", ready);
+            builder.field("version", dictionary.getDictionarySnapshot().getVersion());
+            builder.endObject();
+            channel.sendResponse(new BytesRestResponse(ready ? RestStatus.OK : RestStatus.SERVICE_UNAVAILABLE, builder));
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package org.elasticsearch.plugin.analysis.ik;
+
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.wltea.analyzer.dic.DictStats;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+
+/**
+ * 当前节点的词典内存统计
+ * GET _ik/stats ，返回JSON，dictionaries下每个词典一个对象，包含词数、节点数及估计占用的堆内、堆外字节数
+ */
+public class RestIkStatsAction extends BaseRestHandler {
+
+    @Override
+    public String getName() {
+        return "ik_stats_action";
+    }
+
+    @Override
+    public List<Route> routes() {
+        return Collections.singletonList(new Route(GET, "/_ik/stats"));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) {
+        return channel -> {
+            Map<String, DictStats> stats;
+            try {
+                stats = Dictionary.getSingleton().getStats();
+            } catch (IllegalStateException e) {
+                // 节点启动时词典初始化失败或尚未完成
+                channel.sendResponse(new BytesRestResponse(channel, RestStatus.SERVICE_UNAVAILABLE, e));
+                return;
+            }
+            XContentBuilder builder = channel.newBuilder();
+            builder.startObject();
+            builder.startObject("dictionaries");
+            for (Map.Entry<String, DictStats> entry : stats.entrySet()) {
+                DictStats dictStats = entry.getValue();
+                builder.startObject(entry.getKey());
+                builder.field("words", dictStats.getWords());
+                builder.field("nodes", dictStats.getNodes());
+                builder.field("array_nodes", dictStats.getArrayNodes());
+                builder.field("table_nodes", dictStats.getTableNodes());
+                builder.field("heap_bytes", dictStats.getHeapBytes());
+                builder.field("mapped_bytes", dictStats.getMappedBytes());
+                builder.endObject();
+            }
+            builder.endObject();
+            builder.endObject();
+            channel.sendResponse(new BytesRestResponse(RestStatus.OK, builder));
+        };
+    }
+}
@@ -15,30 +15,38 @@ import java.nio.file.Path;
 
 public class Configuration {
 
-	private Environment environment;
-	private Settings settings;
+	private final Environment environment;
+	private final Settings settings;
 
 	//是否启用智能分词
-	private  boolean useSmart;
+	private final boolean useSmart;
 
 	//是否启用远程词典加载
-	private boolean enableRemoteDict=false;
+	private final boolean enableRemoteDict;
 
 	//是否启用小写处理
-	private boolean enableLowercase=true;
+	private final boolean enableLowercase;
 
 
+	/**
+	 * 创建后不可修改，可在多个索引、分词器间共享
+	 * 词典尚未初始化时（如直接用于IKAnalyzer、IKTokenizer的独立使用）以此配置初始化，已初始化时直接返回，不加锁
+	 * 远程词典监控不在这里启动，独立使用时需要监控可调用Dictionary.startRemoteMonitors
+	 */
 	@Inject
 	public Configuration(Environment env,Settings settings) {
+		this(env , settings , settings.get("use_smart", "false").equals("true"));
+	}
+
+	public Configuration(Environment env,Settings settings,boolean useSmart) {
 		this.environment = env;
 		this.settings=settings;
 
-		this.useSmart = settings.get("use_smart", "false").equals("true");
+		this.useSmart = useSmart;
 		this.enableLowercase = settings.get("enable_lowercase", "true").equals("true");
 		this.enableRemoteDict = settings.get("enable_remote_dict", "true").equals("true");
 
 		Dictionary.initial(this);
-
 	}
 
 	public Path getConfigInPluginDir() {
@@ -52,15 +60,20 @@ public class Configuration {
 		return useSmart;
 	}
 
-	public Configuration setUseSmart(boolean useSmart) {
-		this.useSmart = useSmart;
-		return this;
+	/**
+	 * 同一Environment下与当前配置只有智能分词不同的共享配置
+	 */
+	public Configuration withUseSmart(boolean useSmart) {
+		return useSmart == this.useSmart ? this : ConfigurationRegistry.get(this.environment , this.settings , useSmart);
 	}
 
 	public Environment getEnvironment() {
 		return environment;
 	}
 
+	/**
+	 * 由ConfigurationRegistry共享的配置只保留第一个创建它的分词器的Settings，其中只有use_smart、enable_lowercase、enable_remote_dict对共享它的分词器都成立
+	 */
 	public Settings getSettings() {
 		return settings;
 	}
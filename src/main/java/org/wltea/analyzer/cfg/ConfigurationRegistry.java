@@ -0,0 +1,59 @@
+package org.wltea.analyzer.cfg;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+import org.wltea.analyzer.core.SegmenterWarmUp;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 共享的分词配置
+ * 按生效的配置项（配置目录、智能分词、小写处理、远程词典）去重，生效配置相同的索引和分词器共用同一个不可修改的Configuration
+ * 共享的Configuration保留第一个创建它的分词器的Settings，其他配置项不参与去重，不能通过getSettings读取各分词器自己的值
+ * 词典在节点启动时由bootstrap初始化一次，之后创建配置时Dictionary.initial直接返回，不加锁
+ */
+public final class ConfigurationRegistry {
+
+	private static final Map<String, Configuration> CONFIGURATIONS = new ConcurrentHashMap<String, Configuration>();
+
+	private ConfigurationRegistry(){
+	}
+
+	/**
+	 * 节点启动时初始化词典，配置了warmup_millis时随后预热分词主流程
+	 * 节点配置中没有enable_remote_dict，远程词典监控由启用了远程词典的分词器配置启动
+	 * @param env
+	 * @param settings 节点配置
+	 * @return Configuration 初始化词典使用的配置
+	 */
+	public static Configuration bootstrap(Environment env , Settings settings){
+		//创建配置时初始化词典
+		Configuration configuration = lookup(env , settings , false);
+		SegmenterWarmUp.run(configuration);
+		return configuration;
+	}
+
+	/**
+	 * 获取生效配置相同的共享配置，不存在时创建
+	 * 词典尚未初始化时（如未经过bootstrap的独立使用）由Configuration顺带初始化，配置启用远程词典时启动远程词典监控
+	 * @param env
+	 * @param settings 分词器配置
+	 * @param useSmart 是否启用智能分词
+	 * @return Configuration
+	 */
+	public static Configuration get(Environment env , Settings settings , boolean useSmart){
+		Configuration configuration = lookup(env , settings , useSmart);
+		if(configuration.isEnableRemoteDict()){
+			Dictionary.startRemoteMonitors();
+		}
+		return configuration;
+	}
+
+	private static Configuration lookup(Environment env , Settings settings , boolean useSmart){
+		Configuration probe = new Configuration(env , settings , useSmart);
+		String key = env.configFile() + "|" + useSmart + "|" + probe.isEnableLowercase() + "|" + probe.isEnableRemoteDict();
+		return CONFIGURATIONS.computeIfAbsent(key , k -> probe);
+	}
+}
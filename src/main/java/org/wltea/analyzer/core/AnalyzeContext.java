@@ -33,7 +33,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.wltea.analyzer.cfg.Configuration;
-import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.DictionarySnapshot;
 
 /**
  * 
@@ -61,6 +61,10 @@ class AnalyzeContext {
     private int cursor;
     //最近一次读入的,可处理的字串长度
 	private int available;
+	//已完成规格化和类型识别的字串长度，词典匹配可能提前处理指针之后的字符
+	private int prepared;
+	//从当前指针开始，连续的非CHAR_USELESS字符区域的结束位置
+	private int usefulEnd;
 
 	
 	//子分词器锁
@@ -75,6 +79,8 @@ class AnalyzeContext {
     private LinkedList<Lexeme> results;
 	//分词器配置项
 	private Configuration cfg;
+	//本次词元流使用的词典版本
+	private DictionarySnapshot dictionary;
 
     public AnalyzeContext(Configuration configuration){
         this.cfg = configuration;
@@ -86,6 +92,18 @@ class AnalyzeContext {
     	this.results = new LinkedList<Lexeme>();
     }
     
+    /**
+     * 固定本次词元流使用的词典版本
+     * @param dictionary
+     */
+    void setDictionary(DictionarySnapshot dictionary){
+    	this.dictionary = dictionary;
+    }
+    
+    DictionarySnapshot getDictionary(){
+    	return this.dictionary;
+    }
+    
     int getCursor(){
     	return this.cursor;
     }
@@ -117,13 +135,17 @@ class AnalyzeContext {
     	if(this.buffOffset == 0){
     		//首次读取reader
     		readCount = reader.read(segmentBuff);
+    		this.prepared = 0;
     	}else{
     		int offset = this.available - this.cursor;
     		if(offset > 0){
     			//最近一次读取的>最近一次处理的，将未处理的字串拷贝到segmentBuff头部
     			System.arraycopy(this.segmentBuff , this.cursor , this.segmentBuff , 0 , offset);
+    			System.arraycopy(this.charTypes , this.cursor , this.charTypes , 0 , offset);
     			readCount = offset;
     		}
+    		//已规格化的字符随之移位，不再重复处理
+    		this.prepared = Math.max(this.prepared - this.cursor , 0);
     		//继续读取reader ，以onceReadIn - onceAnalyzed为起始位置，继续填充segmentBuff剩余的部分
     		readCount += reader.read(this.segmentBuff , offset , BUFF_SIZE - offset);
     	}            	
@@ -131,6 +153,7 @@ class AnalyzeContext {
     	this.available = readCount;
     	//重置当前指针
     	this.cursor = 0;
+    	this.usefulEnd = 0;
     	return readCount;
     }
 
@@ -141,6 +164,7 @@ class AnalyzeContext {
     	this.cursor = 0;
     	this.segmentBuff[this.cursor] = CharacterUtil.regularize(this.segmentBuff[this.cursor],cfg.isEnableLowercase());
     	this.charTypes[this.cursor] = CharacterUtil.identifyCharType(this.segmentBuff[this.cursor]);
+    	this.prepared = Math.max(this.prepared , 1);
     }
     
     /**
@@ -151,14 +175,44 @@ class AnalyzeContext {
     boolean moveCursor(){
     	if(this.cursor < this.available - 1){
     		this.cursor++;
-        	this.segmentBuff[this.cursor] = CharacterUtil.regularize(this.segmentBuff[this.cursor],cfg.isEnableLowercase());
-        	this.charTypes[this.cursor] = CharacterUtil.identifyCharType(this.segmentBuff[this.cursor]);
+    		this.prepare(this.cursor);
     		return true;
     	}else{
     		return false;
     	}
     }
 	
+    /**
+     * 对index及之前尚未处理的字符进行规格化和类型识别
+     * 每个字符只处理一次
+     */
+    private void prepare(int index){
+    	for( ; this.prepared <= index ; this.prepared++){
+        	this.segmentBuff[this.prepared] = CharacterUtil.regularize(this.segmentBuff[this.prepared],cfg.isEnableLowercase());
+        	this.charTypes[this.prepared] = CharacterUtil.identifyCharType(this.segmentBuff[this.prepared]);
+    	}
+    }
+
+    /**
+     * 返回从当前指针开始，连续的非CHAR_USELESS字符区域的结束位置（不含）
+     * 区域内指针之后的字符会被提前规格化，供词典一次匹配多个字符
+     * @return int
+     */
+    int getUsefulEnd(){
+    	if(this.usefulEnd <= this.cursor){
+    		int index = this.cursor;
+    		while(index < this.available){
+    			this.prepare(index);
+    			if(CharacterUtil.CHAR_USELESS == this.charTypes[index]){
+    				break;
+    			}
+    			index++;
+    		}
+    		this.usefulEnd = index;
+    	}
+    	return this.usefulEnd;
+    }
+
     /**
      * 设置当前segmentBuff为锁定状态
      * 加入占用segmentBuff的子分词器名称，表示占用segmentBuff
@@ -322,7 +376,7 @@ class AnalyzeContext {
 		while(result != null){
     		//数量词合并
     		this.compound(result);
-    		if(Dictionary.getSingleton().isStopWord(this.segmentBuff ,  result.getBegin() , result.getLength())){
+    		if(this.dictionary.isStopWord(this.segmentBuff ,  result.getBegin() , result.getLength())){
        			//是停止词继续取列表的下一个
     			result = this.results.pollFirst(); 				
     		}else{
@@ -341,6 +395,8 @@ class AnalyzeContext {
 		this.buffLocker.clear();
         this.orgLexemes = new QuickSortSet();
         this.available =0;
+        this.prepared = 0;
+        this.usefulEnd = 0;
         this.buffOffset = 0;
     	this.charTypes = new int[BUFF_SIZE];
     	this.cursor = 0;
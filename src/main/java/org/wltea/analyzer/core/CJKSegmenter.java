@@ -25,11 +25,11 @@
  */
 package org.wltea.analyzer.core;
 
-import org.wltea.analyzer.dic.Dictionary;
-import org.wltea.analyzer.dic.Hit;
+import java.util.Arrays;
 
-import java.util.LinkedList;
-import java.util.List;
+import org.wltea.analyzer.dic.DictionarySnapshot;
+import org.wltea.analyzer.dic.Hit;
+import org.wltea.analyzer.dic.ScanCursor;
 
 
 /**
@@ -39,75 +39,86 @@ class CJKSegmenter implements ISegmenter {
 	
 	//子分词器标签
 	static final String SEGMENTER_NAME = "CJK_SEGMENTER";
-	//待处理的分词hit队列
-	private List<Hit> tmpHits;
+	//同一起始位置最多匹配的词数
+	private static final int MAX_PREFIX_WORDS = 64;
+	
+	//以当前位置开头的词的长度
+	private int[] wordLengths;
+	//已匹配、待指针到达词尾时输出的词元起止位置
+	private int[] pendingBegins;
+	private int[] pendingEnds;
+	private int pendingSize;
+	//词典遍历停止位置的匹配状态
+	private Hit prefixHit;
+	//已匹配的字串仍是词前缀的最远位置，指针未越过该位置时锁定缓冲区
+	private int prefixEnd;
+	//主词典单遍扫描游标
+	private ScanCursor scanCursor;
+	//是否以单遍扫描方式匹配
+	private boolean scanMode;
+	//扫描游标绑定的词典版本
+	private DictionarySnapshot dictionary;
 	
 	
 	CJKSegmenter(){
-		this.tmpHits = new LinkedList<Hit>();
+		this.wordLengths = new int[MAX_PREFIX_WORDS];
+		this.pendingBegins = new int[16];
+		this.pendingEnds = new int[16];
+		this.prefixHit = new Hit();
+		this.prefixEnd = -1;
+		this.scanCursor = new ScanCursor();
 	}
 
 	/* (non-Javadoc)
 	 * @see org.wltea.analyzer.core.ISegmenter#analyze(org.wltea.analyzer.core.AnalyzeContext)
 	 */
 	public void analyze(AnalyzeContext context) {
+		if(this.dictionary != context.getDictionary()){
+			//新的词元流使用了另一版本的词典
+			this.dictionary = context.getDictionary();
+			this.scanMode = this.dictionary.bindMainDictScanCursor(this.scanCursor);
+		}
+		if(this.scanMode){
+			this.scan(context);
+			return;
+		}
 		if(CharacterUtil.CHAR_USELESS != context.getCurrentCharType()){
 			
-			//优先处理tmpHits中的hit
-			if(!this.tmpHits.isEmpty()){
-				//处理词段队列
-				Hit[] tmpArray = this.tmpHits.toArray(new Hit[this.tmpHits.size()]);
-				for(Hit hit : tmpArray){
-					hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor() , hit);
-					if(hit.isMatch()){
-						//输出当前的词
-						Lexeme newLexeme = new Lexeme(context.getBufferOffset() , hit.getBegin() , context.getCursor() - hit.getBegin() + 1 , Lexeme.TYPE_CNWORD);
-						context.addLexeme(newLexeme);
-						
-						if(!hit.isPrefix()){//不是词前缀，hit不需要继续匹配，移除
-							this.tmpHits.remove(hit);
-						}
-						
-					}else if(hit.isUnmatch()){
-						//hit不是词，移除
-						this.tmpHits.remove(hit);
-					}					
-				}
-			}			
+			//优先输出在当前位置结束的词
+			this.outputPending(context);
 			
 			//*********************************
-			//再对当前指针位置的字符进行单字匹配
-			Hit singleCharHit = Dictionary.getSingleton().matchInMainDict(context.getSegmentBuff(), context.getCursor(), 1);
-			if(singleCharHit.isMatch()){//首字成词
-				//输出当前的词
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , context.getCursor() , 1 , Lexeme.TYPE_CNWORD);
-				context.addLexeme(newLexeme);
-
-				//同时也是词前缀
-				if(singleCharHit.isPrefix()){
-					//前缀匹配则放入hit列表
-					this.tmpHits.add(singleCharHit);
+			//再从当前指针位置一次匹配出所有以该字开头的词
+			int cursor = context.getCursor();
+			int wordCount = this.dictionary.matchPrefixesInMainDict(context.getSegmentBuff() , cursor , context.getUsefulEnd() , this.wordLengths , this.prefixHit);
+			for(int i = 0 ; i < wordCount ; i++){
+				if(this.wordLengths[i] == 1){//首字成词
+					//输出当前的词
+					Lexeme newLexeme = new Lexeme(context.getBufferOffset() , cursor , 1 , Lexeme.TYPE_CNWORD);
+					context.addLexeme(newLexeme);
+				}else{
+					//多字词在指针到达词尾时输出，与其他子分词器保持原有的输出顺序
+					this.addPending(cursor , cursor + this.wordLengths[i] - 1);
 				}
-			}else if(singleCharHit.isPrefix()){//首字为词前缀
-				//前缀匹配则放入hit列表
-				this.tmpHits.add(singleCharHit);
 			}
-			
+			//遍历停止位置之前的字串都是词前缀，停止位置本身视其是否还有后续节点
+			int end = this.prefixHit.isPrefix() ? this.prefixHit.getEnd() : this.prefixHit.getEnd() - 1;
+			this.prefixEnd = Math.max(this.prefixEnd , end);
 
 		}else{
 			//遇到CHAR_USELESS字符
 			//清空队列
-			this.tmpHits.clear();
+			this.clear();
 		}
 		
 		//判断缓冲区是否已经读完
 		if(context.isBufferConsumed()){
 			//清空队列
-			this.tmpHits.clear();
+			this.clear();
 		}
 		
 		//判断是否锁定缓冲区
-		if(this.tmpHits.size() == 0){
+		if(this.prefixEnd < context.getCursor()){
 			context.unlockBuffer(SEGMENTER_NAME);
 			
 		}else{
@@ -115,12 +126,81 @@ class CJKSegmenter implements ISegmenter {
 		}
 	}
 
+	/**
+	 * 单遍扫描：读入当前字符，输出所有在当前位置结束的词
+	 */
+	private void scan(AnalyzeContext context){
+		if(CharacterUtil.CHAR_USELESS != context.getCurrentCharType()){
+			int cursor = context.getCursor();
+			int wordCount = this.scanCursor.next(context.getCurrentChar() , this.wordLengths);
+			for(int i = 0 ; i < wordCount ; i++){
+				//由长到短，即按起始位置先后输出
+				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , cursor - this.wordLengths[i] + 1 , this.wordLengths[i] , Lexeme.TYPE_CNWORD);
+				context.addLexeme(newLexeme);
+			}
+		}else{
+			//遇到CHAR_USELESS字符
+			this.scanCursor.clear();
+		}
+		
+		//判断缓冲区是否已经读完
+		if(context.isBufferConsumed()){
+			this.scanCursor.clear();
+		}
+		
+		//判断是否锁定缓冲区
+		if(this.scanCursor.isPrefix()){
+			context.lockBuffer(SEGMENTER_NAME);
+		}else{
+			context.unlockBuffer(SEGMENTER_NAME);
+		}
+	}
+
+	/**
+	 * 输出在当前指针位置结束的词，按起始位置先后输出
+	 */
+	private void outputPending(AnalyzeContext context){
+		int cursor = context.getCursor();
+		int remain = 0;
+		for(int i = 0 ; i < this.pendingSize ; i++){
+			if(this.pendingEnds[i] == cursor){
+				//输出当前的词
+				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , this.pendingBegins[i] , cursor - this.pendingBegins[i] + 1 , Lexeme.TYPE_CNWORD);
+				context.addLexeme(newLexeme);
+			}else{
+				this.pendingBegins[remain] = this.pendingBegins[i];
+				this.pendingEnds[remain] = this.pendingEnds[i];
+				remain++;
+			}
+		}
+		this.pendingSize = remain;
+	}
+
+	private void addPending(int begin , int end){
+		if(this.pendingSize == this.pendingBegins.length){
+			this.pendingBegins = Arrays.copyOf(this.pendingBegins , this.pendingSize << 1);
+			this.pendingEnds = Arrays.copyOf(this.pendingEnds , this.pendingSize << 1);
+		}
+		this.pendingBegins[this.pendingSize] = begin;
+		this.pendingEnds[this.pendingSize] = end;
+		this.pendingSize++;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.wltea.analyzer.core.ISegmenter#reset()
 	 */
 	public void reset() {
 		//清空队列
-		this.tmpHits.clear();
+		this.clear();
+		//重新绑定，运行时增删词后及时切换；词典重新加载后由下一个词元流切换
+		if(this.dictionary != null){
+			this.scanMode = this.dictionary.bindMainDictScanCursor(this.scanCursor);
+		}
+	}
+
+	private void clear(){
+		this.pendingSize = 0;
+		this.prefixEnd = -1;
 	}
 
 }
@@ -24,13 +24,9 @@
  */
 package org.wltea.analyzer.core;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
 
-import org.wltea.analyzer.dic.Dictionary;
-import org.wltea.analyzer.dic.Hit;
+import org.wltea.analyzer.dic.MatchCursor;
 
 /**
  * 
@@ -43,12 +39,10 @@ class CN_QuantifierSegmenter implements ISegmenter{
 	
 	//中文数词
 	private static String Chn_Num = "一二两三四五六七八九十零壹贰叁肆伍陆柒捌玖拾百千万亿拾佰仟萬億兆卅廿";//Cnum
-	private static Set<Character> ChnNumberChars = new HashSet<Character>();
+	//有序的中文数词字符，二分查找，避免装箱
+	private static char[] ChnNumberChars = Chn_Num.toCharArray();
 	static{
-		char[] ca = Chn_Num.toCharArray();
-		for(char nChar : ca){
-			ChnNumberChars.add(nChar);
-		}
+		Arrays.sort(ChnNumberChars);
 	}
 	
 	/*
@@ -63,14 +57,14 @@ class CN_QuantifierSegmenter implements ISegmenter{
 	 */
 	private int nEnd;
 
-	//待处理的量词hit队列
-	private List<Hit> countHits;
+	//待处理的量词前缀匹配
+	private MatchCursor countHits;
 	
 	
 	CN_QuantifierSegmenter(){
 		nStart = -1;
 		nEnd = -1;
-		this.countHits  = new LinkedList<Hit>();
+		this.countHits  = new MatchCursor();
 	}
 	
 	/**
@@ -107,14 +101,14 @@ class CN_QuantifierSegmenter implements ISegmenter{
 	private void processCNumber(AnalyzeContext context){
 		if(nStart == -1 && nEnd == -1){//初始状态
 			if(CharacterUtil.CHAR_CHINESE == context.getCurrentCharType() 
-					&& ChnNumberChars.contains(context.getCurrentChar())){
+					&& Arrays.binarySearch(ChnNumberChars , context.getCurrentChar()) >= 0){
 				//记录数词的起始、结束位置
 				nStart = context.getCursor();
 				nEnd = context.getCursor();
 			}
 		}else{//正在处理状态
 			if(CharacterUtil.CHAR_CHINESE == context.getCurrentCharType() 
-					&& ChnNumberChars.contains(context.getCurrentChar())){
+					&& Arrays.binarySearch(ChnNumberChars , context.getCurrentChar()) >= 0){
 				//记录数词的结束位置
 				nEnd = context.getCursor();
 			}else{
@@ -148,47 +142,15 @@ class CN_QuantifierSegmenter implements ISegmenter{
 		
 		if(CharacterUtil.CHAR_CHINESE == context.getCurrentCharType()){
 			
-			//优先处理countHits中的hit
-			if(!this.countHits.isEmpty()){
-				//处理词段队列
-				Hit[] tmpArray = this.countHits.toArray(new Hit[this.countHits.size()]);
-				for(Hit hit : tmpArray){
-					hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor() , hit);
-					if(hit.isMatch()){
-						//输出当前的词
-						Lexeme newLexeme = new Lexeme(context.getBufferOffset() , hit.getBegin() , context.getCursor() - hit.getBegin() + 1 , Lexeme.TYPE_COUNT);
-						context.addLexeme(newLexeme);
-						
-						if(!hit.isPrefix()){//不是词前缀，hit不需要继续匹配，移除
-							this.countHits.remove(hit);
-						}
-						
-					}else if(hit.isUnmatch()){
-						//hit不是词，移除
-						this.countHits.remove(hit);
-					}					
-				}
-			}				
-
-			//*********************************
-			//对当前指针位置的字符进行单字匹配
-			Hit singleCharHit = Dictionary.getSingleton().matchInQuantifierDict(context.getSegmentBuff(), context.getCursor(), 1);
-			if(singleCharHit.isMatch()){//首字成量词词
+			//延续已有的量词前缀匹配，并对当前指针位置的字符进行单字匹配
+			int matchCount = context.getDictionary().matchInQuantifierDict(this.countHits , context.getSegmentBuff() , context.getCursor());
+			for(int i = 0 ; i < matchCount ; i++){
+				int begin = this.countHits.getMatchBegin(i);
 				//输出当前的词
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , context.getCursor() , 1 , Lexeme.TYPE_COUNT);
+				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , begin , context.getCursor() - begin + 1 , Lexeme.TYPE_COUNT);
 				context.addLexeme(newLexeme);
-
-				//同时也是词前缀
-				if(singleCharHit.isPrefix()){
-					//前缀匹配则放入hit列表
-					this.countHits.add(singleCharHit);
-				}
-			}else if(singleCharHit.isPrefix()){//首字为量词前缀
-				//前缀匹配则放入hit列表
-				this.countHits.add(singleCharHit);
 			}
 			
-			
 		}else{
 			//输入的不是中文字符
 			//清空未成形的量词
@@ -24,6 +24,8 @@
 package org.wltea.analyzer.core;
 
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.DictionarySnapshot;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -45,6 +47,8 @@ public final class IKSegmenter {
 	//分词歧义裁决器
 	private IKArbitrator arbitrator;
     private  Configuration configuration;
+	//固定使用的词典版本，为null时每个词元流使用词典的最新版本
+	private final DictionarySnapshot dictionary;
 	
 
 	/**
@@ -52,8 +56,19 @@ public final class IKSegmenter {
 	 * @param input
      */
 	public IKSegmenter(Reader input ,Configuration configuration){
+		this(input , configuration , null);
+	}
+
+	/**
+	 * 使用指定版本词典的分词器，用于词典替换前的预热
+	 * @param input
+	 * @param configuration
+	 * @param dictionary 尚未发布的词典版本
+	 */
+	IKSegmenter(Reader input , Configuration configuration , DictionarySnapshot dictionary){
 		this.input = input;
         this.configuration = configuration;
+        this.dictionary = dictionary;
         this.init();
 	}
 
@@ -64,6 +79,8 @@ public final class IKSegmenter {
 	private void init(){
 		//初始化分词上下文
 		this.context = new AnalyzeContext(configuration);
+		//固定当前版本的词典
+		this.context.setDictionary(this.currentDictionary());
 		//加载子分词器
 		this.segmenters = this.loadSegmenters();
 		//加载歧义裁决器
@@ -140,8 +157,14 @@ public final class IKSegmenter {
 	public synchronized void reset(Reader input) {
 		this.input = input;
 		context.reset();
+		//新的词元流使用词典的最新版本，流内不再切换
+		context.setDictionary(this.currentDictionary());
 		for(ISegmenter segmenter : segmenters){
 			segmenter.reset();
 		}
 	}
+
+	private DictionarySnapshot currentDictionary(){
+		return this.dictionary != null ? this.dictionary : Dictionary.getSingleton().getDictionarySnapshot();
+	}
 }
@@ -0,0 +1,69 @@
+package org.wltea.analyzer.core;
+
+import org.apache.logging.log4j.Logger;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.DictionarySnapshot;
+import org.wltea.analyzer.help.ESPluginLoggerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分词预热
+ * 词典加载后以预热语料反复执行智能分词和细粒度分词，直到用完warmup_millis配置的时间预算，
+ * 使分词主流程在节点接收请求前完成JIT编译；词典重新加载后在替换前以同样方式预热新版本；未配置warmup_millis时不预热
+ */
+public final class SegmenterWarmUp {
+
+	private static final Logger logger = ESPluginLoggerFactory.getLogger(SegmenterWarmUp.class.getName());
+
+	private SegmenterWarmUp(){
+	}
+
+	/**
+	 * 预热分词主流程，词典须已初始化
+	 * @param configuration 任一共享配置，智能分词和细粒度分词都会执行
+	 */
+	public static void run(Configuration configuration){
+		run(configuration , Dictionary.getSingleton().getDictionarySnapshot());
+	}
+
+	/**
+	 * 以指定版本的词典预热分词主流程
+	 * @param configuration 任一共享配置，智能分词和细粒度分词都会执行
+	 * @param snapshot 预热的词典版本，可以尚未发布
+	 */
+	public static void run(Configuration configuration , DictionarySnapshot snapshot){
+		Dictionary dictionary = Dictionary.getSingleton();
+		long millis = dictionary.getWarmupMillis();
+		if(millis <= 0){
+			return;
+		}
+		String corpus = dictionary.getWarmupCorpus();
+		if(corpus == null){
+			return;
+		}
+		Configuration[] modes = {configuration.withUseSmart(false) , configuration.withUseSmart(true)};
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(millis);
+		int rounds = 0;
+		long lexemes = 0;
+		try{
+			do{
+				for(Configuration mode : modes){
+					IKSegmenter segmenter = new IKSegmenter(new StringReader(corpus) , mode , snapshot);
+					while(segmenter.next() != null){
+						lexemes++;
+					}
+				}
+				rounds++;
+			}while(System.nanoTime() < deadline);
+		}catch(IOException e){
+			logger.error("[Warm Up] segmenting warm up corpus failed", e);
+			return;
+		}
+		logger.info("[Warm Up] dict version {}, {} rounds, {} lexemes in {} ms", snapshot.getVersion(), rounds, lexemes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+}
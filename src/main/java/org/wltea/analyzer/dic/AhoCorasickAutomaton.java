@@ -0,0 +1,155 @@
+package org.wltea.analyzer.dic;
+
+/**
+ * 基于双数组的Aho-Corasick自动机
+ * 在双数组的状态上增加失败转移，文本只需从头到尾扫描一次，每个字符处输出所有在该字符结束的词
+ * 扫描n个字符的代价为O(n + 词的数目)，不必在每个位置重新从词典树根开始匹配
+ */
+class AhoCorasickAutomaton {
+
+	private static final int ROOT = DoubleArrayTrie.ROOT;
+	//成词标记
+	private static final int WORD_FLAG = 0x1;
+	//当前状态或其失败链上存在可继续匹配的状态
+	private static final int PREFIX_FLAG = 0x2;
+
+	private final DoubleArrayTrie trie;
+	//双数组是否专为自动机编译，而不是与主词典共用
+	private final boolean ownsTrie;
+	//失败转移：当前路径最长的、同时也是词典前缀的真后缀所在状态
+	private final int[] fail;
+	//失败链上最近的成词状态，没有时为-1
+	private final int[] output;
+	//路径长度左移2位，低两位为成词、可继续匹配标记
+	private final char[] info;
+
+	private AhoCorasickAutomaton(DoubleArrayTrie trie , boolean ownsTrie , int[] fail , int[] output , char[] info){
+		this.trie = trie;
+		this.ownsTrie = ownsTrie;
+		this.fail = fail;
+		this.output = output;
+		this.info = info;
+	}
+
+	/**
+	 * 在双数组上按广度优先顺序计算失败转移
+	 * @param trie 主词典双数组
+	 * @param ownsTrie 双数组是否专为自动机编译
+	 * @return AhoCorasickAutomaton
+	 */
+	static AhoCorasickAutomaton build(DoubleArrayTrie trie , boolean ownsTrie){
+		int capacity = trie.capacity();
+		//按父状态分组存放子状态
+		int[] childStart = new int[capacity + 1];
+		for(int s = 0 ; s < capacity ; s++){
+			if(trie.isState(s)){
+				childStart[trie.parentOf(s) + 1]++;
+			}
+		}
+		for(int s = 0 ; s < capacity ; s++){
+			childStart[s + 1] += childStart[s];
+		}
+		int[] children = new int[childStart[capacity]];
+		int[] filled = new int[capacity];
+		for(int s = 0 ; s < capacity ; s++){
+			if(trie.isState(s)){
+				int parent = trie.parentOf(s);
+				children[childStart[parent] + filled[parent]++] = s;
+			}
+		}
+		filled = null;
+
+		int[] fail = new int[capacity];
+		int[] output = new int[capacity];
+		char[] info = new char[capacity];
+		output[ROOT] = -1;
+		int[] queue = new int[children.length + 1];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = ROOT;
+		while(head < tail){
+			int s = queue[head++];
+			for(int i = childStart[s] ; i < childStart[s + 1] ; i++){
+				int t = children[i];
+				int f = ROOT;
+				if(s != ROOT){
+					//沿父状态的失败链查找能以同一字符转移的状态
+					char c = trie.charOf(t);
+					for(int g = fail[s] ; ; g = fail[g]){
+						int next = trie.next(g , c);
+						if(next >= 0){
+							f = next;
+							break;
+						}
+						if(g == ROOT){
+							break;
+						}
+					}
+				}
+				fail[t] = f;
+				output[t] = (info[f] & WORD_FLAG) != 0 ? f : output[f];
+				int flags = 0;
+				if(trie.isWord(t)){
+					flags |= WORD_FLAG;
+				}
+				if(trie.hasNext(t) || (info[f] & PREFIX_FLAG) != 0){
+					flags |= PREFIX_FLAG;
+				}
+				info[t] = (char) (((info[s] >> 2) + 1) << 2 | flags);
+				queue[tail++] = t;
+			}
+		}
+		return new AhoCorasickAutomaton(trie , ownsTrie , fail , output , info);
+	}
+
+	/**
+	 * 读入一个字符后的状态，没有对应转移时沿失败链回退
+	 */
+	int next(int state , char c){
+		while(true){
+			int t = this.trie.next(state , c);
+			if(t >= 0){
+				return t;
+			}
+			if(state == ROOT){
+				return ROOT;
+			}
+			state = this.fail[state];
+		}
+	}
+
+	/**
+	 * 在state结束的所有词的长度，由长到短
+	 * @param state
+	 * @param lengths
+	 * @return int 词的数目，最多lengths.length个
+	 */
+	int matches(int state , int[] lengths){
+		int count = 0;
+		if((this.info[state] & WORD_FLAG) == 0){
+			state = this.output[state];
+		}
+		for( ; state >= 0 && count < lengths.length ; state = this.output[state]){
+			lengths[count++] = this.info[state] >> 2;
+		}
+		return count;
+	}
+
+	/**
+	 * 已读入的文本是否还可能与后续字符组成词
+	 */
+	boolean isPrefix(int state){
+		return (this.info[state] & PREFIX_FLAG) != 0;
+	}
+
+	/**
+	 * 与主词典共用的双数组不重复统计
+	 */
+	void collectStats(DictStats stats){
+		if(this.ownsTrie){
+			this.trie.collectStats(stats);
+		}
+		stats.addHeapBytes(DictStats.objectBytes(16) + DictStats.arrayBytes(this.fail.length , 4)
+				+ DictStats.arrayBytes(this.output.length , 4) + DictStats.arrayBytes(this.info.length , 2));
+	}
+}
@@ -20,12 +20,13 @@ public class DbMonitor implements Runnable {
         SpecialPermission.check();
         AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
             try {
-                // 远程词库有更新,需要重新加载词典，并修改last_modified,eTags
-                logger.info("------------ Dictionary reLoadMainDict START ------------");
-                Dictionary.getSingleton().reLoadMainDict();
-                logger.info("------------ Dictionary reLoadMainDict END ------------");
+                // 数据库词典有变化时才请求重建，由重建调度合并其他来源的请求后执行
+                Dictionary dictionary = Dictionary.getSingleton();
+                if (dictionary.isJdbcChanged()) {
+                    dictionary.requestReload("jdbc");
+                }
             } catch (Exception e) {
-                logger.error("------------ Dictionary reLoadMainDict ERROR! ------------", e);
+                logger.error("------------ jdbc change probe ERROR! ------------", e);
             }
             return null;
         });
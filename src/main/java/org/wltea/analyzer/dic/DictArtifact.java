@@ -0,0 +1,220 @@
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 预编译词典文件（.ikd）
+ * 一个文件内保存主词典、量词词典、停止词词典的双数组，以及编译时使用的扩展词典列表
+ * 文件头之后依次为段表和各段内容，均为小端序，文件头之后的全部内容带CRC32校验和
+ */
+final class DictArtifact {
+
+	//段类型
+	private static final int SECTION_MAIN = 0;
+	private static final int SECTION_QUANTIFIER = 1;
+	private static final int SECTION_STOPWORDS = 2;
+	private static final int SECTION_SOURCES = 3;
+	private static final int SECTION_COUNT = 4;
+	//文件标识"IKDA"及格式版本
+	private static final int FILE_MAGIC = 0x494B4441;
+	private static final int FILE_VERSION = 1;
+	//文件头：标识、版本、段数目、校验和
+	private static final int FILE_HEADER_LENGTH = 16;
+	//段表项：类型、偏移、长度
+	private static final int SECTION_ENTRY_LENGTH = 12;
+
+	private final DoubleArrayTrie mainDict;
+
+	private final DoubleArrayTrie quantifierDict;
+
+	private final DoubleArrayTrie stopWords;
+
+	private final List<String> sources;
+
+	private DictArtifact(DoubleArrayTrie mainDict , DoubleArrayTrie quantifierDict , DoubleArrayTrie stopWords , List<String> sources){
+		this.mainDict = mainDict;
+		this.quantifierDict = quantifierDict;
+		this.stopWords = stopWords;
+		this.sources = sources;
+	}
+
+	DoubleArrayTrie getMainDict(){
+		return this.mainDict;
+	}
+
+	DoubleArrayTrie getQuantifierDict(){
+		return this.quantifierDict;
+	}
+
+	DoubleArrayTrie getStopWords(){
+		return this.stopWords;
+	}
+
+	/**
+	 * 编译时使用的扩展词典，每行为"配置项=相对配置目录的路径"，已排序
+	 */
+	List<String> getSources(){
+		return this.sources;
+	}
+
+	/**
+	 * 写入预编译词典文件
+	 * 先写入同目录的临时文件再原子替换，替换前正在映射旧文件的进程不受影响
+	 * 已有文件的长度和校验和与新内容相同时不重写，只更新修改时间，使其不早于刚读取的词典源文件
+	 * @param file
+	 * @param mainDict 主词典及扩展词典
+	 * @param quantifierDict 量词词典
+	 * @param stopWords 停止词词典及扩展停止词词典
+	 * @param sources 编译时使用的扩展词典
+	 * @return boolean 是否写入了文件
+	 * @throws IOException
+	 */
+	static boolean write(Path file , DoubleArrayTrie mainDict , DoubleArrayTrie quantifierDict , DoubleArrayTrie stopWords , List<String> sources) throws IOException{
+		List<String> sortedSources = new ArrayList<String>(sources);
+		Collections.sort(sortedSources);
+		byte[] sourceBytes = String.join("\n" , sortedSources).getBytes(StandardCharsets.UTF_8);
+		int[] lengths = new int[SECTION_COUNT];
+		lengths[SECTION_MAIN] = mainDict.byteSize();
+		lengths[SECTION_QUANTIFIER] = quantifierDict.byteSize();
+		lengths[SECTION_STOPWORDS] = stopWords.byteSize();
+		lengths[SECTION_SOURCES] = sourceBytes.length;
+		//各段按8字节对齐
+		int[] offsets = new int[SECTION_COUNT];
+		long offset = align(FILE_HEADER_LENGTH + SECTION_COUNT * SECTION_ENTRY_LENGTH);
+		for(int i = 0 ; i < SECTION_COUNT ; i++){
+			offsets[i] = (int) offset;
+			offset = align(offset + lengths[i]);
+		}
+		if(offset > Integer.MAX_VALUE){
+			throw new IOException("ik dictionary too large to compile: " + offset + " bytes");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(SECTION_COUNT).putInt(0);
+		for(int i = 0 ; i < SECTION_COUNT ; i++){
+			buffer.putInt(i).putInt(offsets[i]).putInt(lengths[i]);
+		}
+		buffer.position(offsets[SECTION_MAIN]);
+		mainDict.writeTo(buffer);
+		buffer.position(offsets[SECTION_QUANTIFIER]);
+		quantifierDict.writeTo(buffer);
+		buffer.position(offsets[SECTION_STOPWORDS]);
+		stopWords.writeTo(buffer);
+		buffer.position(offsets[SECTION_SOURCES]);
+		buffer.put(sourceBytes);
+		buffer.putInt(12 , checksum(buffer));
+		buffer.rewind();
+		if(isSame(file , buffer)){
+			Files.setLastModifiedTime(file , FileTime.fromMillis(System.currentTimeMillis()));
+			return false;
+		}
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(FileChannel channel = FileChannel.open(tmp , StandardOpenOption.CREATE , StandardOpenOption.TRUNCATE_EXISTING , StandardOpenOption.WRITE)){
+			while(buffer.hasRemaining()){
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(tmp , file , StandardCopyOption.REPLACE_EXISTING , StandardCopyOption.ATOMIC_MOVE);
+		return true;
+	}
+
+	/**
+	 * 已有文件的长度和校验和是否与将要写入的内容相同
+	 */
+	private static boolean isSame(Path file , ByteBuffer buffer) throws IOException{
+		if(!Files.isRegularFile(file) || Files.size(file) != buffer.limit()){
+			return false;
+		}
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		try(FileChannel channel = FileChannel.open(file , StandardOpenOption.READ)){
+			while(header.hasRemaining() && channel.read(header) >= 0){
+			}
+		}
+		return !header.hasRemaining() && header.getInt(0) == FILE_MAGIC && header.getInt(12) == buffer.getInt(12);
+	}
+
+	/**
+	 * 以只读内存映射方式加载预编译词典文件，校验和不符或格式不正确时抛出异常
+	 * @param file
+	 * @return DictArtifact
+	 * @throws IOException
+	 */
+	static DictArtifact map(Path file) throws IOException{
+		MappedByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(file , StandardOpenOption.READ)){
+			if(channel.size() > Integer.MAX_VALUE){
+				throw new IOException("ik dictionary file too large: " + file);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY , 0 , channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.limit() < FILE_HEADER_LENGTH || buffer.getInt(0) != FILE_MAGIC){
+			throw new IOException("not an ik dictionary file: " + file);
+		}
+		if(buffer.getInt(4) != FILE_VERSION){
+			throw new IOException("unsupported ik dictionary file version " + buffer.getInt(4) + ": " + file);
+		}
+		int count = buffer.getInt(8);
+		if(count != SECTION_COUNT || buffer.limit() < FILE_HEADER_LENGTH + (long) count * SECTION_ENTRY_LENGTH){
+			throw new IOException("corrupted ik dictionary file: " + file);
+		}
+		if(checksum(buffer) != buffer.getInt(12)){
+			throw new IOException("ik dictionary file checksum mismatch: " + file);
+		}
+		ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+		for(int i = 0 ; i < count ; i++){
+			int entry = FILE_HEADER_LENGTH + i * SECTION_ENTRY_LENGTH;
+			int type = buffer.getInt(entry);
+			int offset = buffer.getInt(entry + 4);
+			int length = buffer.getInt(entry + 8);
+			if(type < 0 || type >= SECTION_COUNT || sections[type] != null || offset < 0 || length < 0 || (long) offset + length > buffer.limit()){
+				throw new IOException("corrupted ik dictionary file: " + file);
+			}
+			ByteBuffer section = buffer.duplicate();
+			section.position(offset).limit(offset + length);
+			sections[type] = section.slice().order(ByteOrder.LITTLE_ENDIAN);
+		}
+		try{
+			byte[] sourceBytes = new byte[sections[SECTION_SOURCES].remaining()];
+			sections[SECTION_SOURCES].get(sourceBytes);
+			String sources = new String(sourceBytes , StandardCharsets.UTF_8);
+			return new DictArtifact(DoubleArrayTrie.read(sections[SECTION_MAIN]) ,
+					DoubleArrayTrie.read(sections[SECTION_QUANTIFIER]) ,
+					DoubleArrayTrie.read(sections[SECTION_STOPWORDS]) ,
+					sources.isEmpty() ? Collections.<String>emptyList() : Arrays.asList(sources.split("\n")));
+		}catch(IOException e){
+			throw new IOException(e.getMessage() + ": " + file , e);
+		}
+	}
+
+	/**
+	 * 文件头之后全部内容的CRC32
+	 */
+	private static int checksum(ByteBuffer buffer){
+		ByteBuffer content = buffer.duplicate();
+		content.position(FILE_HEADER_LENGTH).limit(buffer.limit());
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		return (int) crc.getValue();
+	}
+
+	private static long align(long length){
+		return (length + 7) & ~7L;
+	}
+}
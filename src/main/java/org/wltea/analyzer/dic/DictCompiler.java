@@ -0,0 +1,39 @@
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 离线词典编译工具
+ * 读取配置目录中的IKAnalyzer.cfg.xml，将main.dic、ext_dict、quantifier.dic、stopword.dic及ext_stopwords
+ * 编译为带校验和的预编译词典ik.ikd，节点启动时直接内存映射加载，不再逐行解析和构造词典树
+ * 远程词典和数据库词典仍在节点运行时加载，叠加在预编译词典之上
+ * <pre>
+ * java -cp "plugins/analysis-ik/*:lib/*" org.wltea.analyzer.dic.DictCompiler config/analysis-ik [output]
+ * </pre>
+ * output默认为配置目录下的ik.ikd
+ */
+public final class DictCompiler {
+
+	private DictCompiler(){
+	}
+
+	public static void main(String[] args){
+		if(args.length < 1 || args.length > 2){
+			System.err.println("usage: DictCompiler <config dir> [output file]");
+			System.exit(2);
+		}
+		Path confDir = Paths.get(args[0]);
+		Path output = args.length > 1 ? Paths.get(args[1]) : confDir.resolve(Dictionary.PATH_DIC_COMPILED);
+		try{
+			new Dictionary(confDir).compile(output);
+			System.out.println("compiled " + output);
+			System.exit(0);
+		}catch(IOException | RuntimeException e){
+			System.err.println("failed to compile " + output + ": " + e.getMessage());
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
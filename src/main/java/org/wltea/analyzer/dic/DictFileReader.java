@@ -0,0 +1,138 @@
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 词典文件读取
+ * 以NIO分块读取文件，UTF-8直接解码到复用的字符缓冲区，按偏移和长度把每行的词交给WordConsumer（通常为词典树Builder），
+ * 不为每行创建String和char[]
+ * 每行去除首尾空白（与String.trim相同）后为一个词，空行忽略，文件开头的BOM忽略
+ * 文件名以.gz结尾时按gzip格式边解压边读取
+ */
+final class DictFileReader {
+
+	//读取缓冲区字节数
+	private static final int BUFFER_SIZE = 64 * 1024;
+	//gzip压缩的词典文件后缀
+	private static final String GZIP_SUFFIX = ".gz";
+
+	private DictFileReader(){
+	}
+
+	/**
+	 * 接收读到的词，charArray只在调用期间有效
+	 */
+	interface WordConsumer{
+
+		void add(char[] charArray , int offset , int length);
+	}
+
+	/**
+	 * 读取词典文件中的全部词
+	 * @param file
+	 * @param dict
+	 * @throws IOException 文件不存在时为NoSuchFileException
+	 */
+	static void read(Path file , WordConsumer dict) throws IOException{
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+		CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		boolean first = true;
+		try(ReadableByteChannel channel = open(file)){
+			boolean done = false;
+			while(!done){
+				//解码输出已满时bytes中还留有未解码的字节，read读不到新的字节也不会返回-1
+				boolean endOfInput = channel.read(bytes) < 0;
+				bytes.flip();
+				CoderResult result = decoder.decode(bytes , chars , endOfInput);
+				bytes.compact();
+				if(endOfInput && result.isUnderflow()){
+					decoder.flush(chars);
+					done = true;
+				}
+				if(first && chars.position() > 0){
+					first = false;
+					if(chars.get(0) == '\uFEFF'){
+						chars.put(0 , ' ');
+					}
+				}
+				chars.flip();
+				addLines(chars , dict , done);
+				if(chars.position() == 0 && chars.limit() == chars.capacity()){
+					//一行超过缓冲区长度，扩大缓冲区
+					CharBuffer larger = CharBuffer.allocate(chars.capacity() << 1);
+					larger.put(chars);
+					chars = larger;
+				}else{
+					chars.compact();
+				}
+			}
+		}
+	}
+
+	private static ReadableByteChannel open(Path file) throws IOException{
+		if(!file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(GZIP_SUFFIX)){
+			return FileChannel.open(file , StandardOpenOption.READ);
+		}
+		InputStream in = Files.newInputStream(file);
+		try{
+			return Channels.newChannel(new GZIPInputStream(in , BUFFER_SIZE));
+		}catch(IOException | RuntimeException e){
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 加入chars中所有完整的行，最后一行不完整时留在缓冲区中
+	 * @param chars 读模式的字符缓冲区，返回时position为第一个未处理的字符
+	 * @param dict
+	 * @param endOfInput 是否已读到文件末尾，此时最后一行也是完整的
+	 */
+	private static void addLines(CharBuffer chars , WordConsumer dict , boolean endOfInput){
+		char[] array = chars.array();
+		int limit = chars.limit();
+		int lineStart = chars.position();
+		for(int i = lineStart ; i < limit ; i++){
+			char c = array[i];
+			if(c == '\n' || c == '\r'){
+				addTrimmed(array , lineStart , i , dict);
+				lineStart = i + 1;
+			}
+		}
+		if(endOfInput){
+			addTrimmed(array , lineStart , limit , dict);
+			lineStart = limit;
+		}
+		chars.position(lineStart);
+	}
+
+	private static void addTrimmed(char[] array , int begin , int end , WordConsumer dict){
+		while(begin < end && array[begin] <= ' '){
+			begin++;
+		}
+		while(end > begin && array[end - 1] <= ' '){
+			end--;
+		}
+		if(end > begin){
+			dict.add(array , begin , end - begin);
+		}
+	}
+}
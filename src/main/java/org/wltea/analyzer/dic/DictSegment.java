@@ -25,44 +25,50 @@
  */
 package org.wltea.analyzer.dic;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 词典树分段，表示词典树的一个分枝
  */
-class DictSegment implements Comparable<DictSegment>{
+class DictSegment implements DictTrie , Comparable<DictSegment>{
 	
-	//公用字典表，存储汉字
-	private static final Map<Character , Character> charMap = new ConcurrentHashMap<Character , Character>(16 , 0.95f);
 	//数组大小上限
-	private static final int ARRAY_LENGTH_LIMIT = 3;
+	private static final int ARRAY_LENGTH_LIMIT = 8;
+	//散列表最小容量，必须是2的幂
+	private static final int TABLE_MIN_CAPACITY = 16;
+	//批量构造时并行构造的最少词数
+	private static final int PARALLEL_BUILD_THRESHOLD = 100000;
 
 	
-	//Map存储结构
-	private Map<Character , DictSegment> childrenMap;
-	//数组方式存储结构
-	private DictSegment[] childrenArray;
+	//子节点字符
+	//子节点数目 <=ARRAY_LENGTH_LIMIT 时按字符有序排列，与childrenArray一一对应，长度等于子节点数目
+	//子节点数目 >ARRAY_LENGTH_LIMIT 时为开放寻址散列表，长度为2的幂
+	private volatile char[] childrenChars;
+	//子节点，与childrenChars同下标存放，散列表中null表示空位
+	private volatile DictSegment[] childrenArray;
 	
 	
 	//当前节点上存储的字符
-	private Character nodeChar;
+	private final char nodeChar;
 	//当前节点存储的Segment数目
-	//storeSize <=ARRAY_LENGTH_LIMIT ，使用数组存储， storeSize >ARRAY_LENGTH_LIMIT ,则使用Map存储
+	//storeSize <=ARRAY_LENGTH_LIMIT ，使用有序数组存储， storeSize >ARRAY_LENGTH_LIMIT ,则使用散列表存储
 	private int storeSize = 0;
 	//当前DictSegment状态 ,默认 0 , 1表示从根节点到当前节点的路径表示一个词
 	private int nodeState = 0;	
 	
 	
-	DictSegment(Character nodeChar){
-		if(nodeChar == null){
-			throw new IllegalArgumentException("node char cannot be empty");
-		}
+	DictSegment(char nodeChar){
 		this.nodeChar = nodeChar;
 	}
 
-	Character getNodeChar() {
+	char getNodeChar() {
 		return nodeChar;
 	}
 	
@@ -101,7 +107,7 @@ class DictSegment implements Comparable<DictSegment>{
 	 * @param searchHit
 	 * @return Hit 
 	 */
-	Hit match(char[] charArray , int begin , int length , Hit searchHit){
+	public Hit match(char[] charArray , int begin , int length , Hit searchHit){
 		
 		if(searchHit == null){
 			//如果hit为空，新建
@@ -115,26 +121,8 @@ class DictSegment implements Comparable<DictSegment>{
 		//设置hit的当前处理位置
 		searchHit.setEnd(begin);
 
-        Character keyChar = Character.valueOf(charArray[begin]);
-		DictSegment ds = null;
-		
-		//引用实例变量为本地变量，避免查询时遇到更新的同步问题
-		DictSegment[] segmentArray = this.childrenArray;
-		Map<Character , DictSegment> segmentMap = this.childrenMap;		
-		
 		//STEP1 在节点中查找keyChar对应的DictSegment
-		if(segmentArray != null){
-			//在数组中查找
-			DictSegment keySegment = new DictSegment(keyChar);
-			int position = Arrays.binarySearch(segmentArray, 0 , this.storeSize , keySegment);
-			if(position >= 0){
-				ds = segmentArray[position];
-			}
-
-		}else if(segmentMap != null){
-			//在map中查找
-			ds = (DictSegment)segmentMap.get(keyChar);
-		}
+		DictSegment ds = this.getChild(charArray[begin]);
 		
 		//STEP2 找到DictSegment，判断词的匹配状态，是否继续递归，还是返回结果
 		if(ds != null){			
@@ -162,6 +150,76 @@ class DictSegment implements Comparable<DictSegment>{
 		return searchHit;		
 	}
 
+	/**
+	 * 从Hit记录的DictSegment继续向下匹配
+	 * @param charArray
+	 * @param currentIndex
+	 * @param matchedHit
+	 * @return Hit
+	 */
+	public Hit matchWithHit(char[] charArray , int currentIndex , Hit matchedHit){
+		return matchedHit.getMatchedDictSegment().match(charArray , currentIndex , 1 , matchedHit);
+	}
+
+	public int matchPrefixes(char[] charArray , int begin , int end , int[] lengths , Hit searchHit){
+		searchHit.setUnmatch();
+		searchHit.setBegin(begin);
+		searchHit.setEnd(begin - 1);
+		int count = 0;
+		DictSegment ds = this;
+		for(int i = begin ; i < end && count < lengths.length ; i++){
+			DictSegment next = ds.getChild(charArray[i]);
+			if(next == null){
+				break;
+			}
+			ds = next;
+			searchHit.setEnd(i);
+			if(ds.nodeState == 1){
+				lengths[count++] = i - begin + 1;
+			}
+		}
+		if(ds != this){
+			if(ds.nodeState == 1){
+				searchHit.setMatch();
+			}
+			if(ds.hasNextNode()){
+				searchHit.setPrefix();
+				searchHit.setMatchedDictSegment(ds);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 判断从根节点到当前节点的路径是否表示一个词
+	 */
+	boolean isWord(){
+		return this.nodeState == 1;
+	}
+
+	/**
+	 * 按字符顺序返回当前节点的所有子节点
+	 * @return DictSegment[]
+	 */
+	synchronized DictSegment[] getChildren(){
+		DictSegment[] segmentArray = this.childrenArray;
+		if(segmentArray == null){
+			return new DictSegment[0];
+		}
+		if(this.storeSize <= ARRAY_LENGTH_LIMIT){
+			return segmentArray.clone();
+		}
+		DictSegment[] children = new DictSegment[this.storeSize];
+		int n = 0;
+		for(DictSegment segment : segmentArray){
+			if(segment != null){
+				children[n++] = segment;
+			}
+		}
+		Arrays.sort(children);
+		return children;
+	}
+
 	/**
 	 * 加载填充词典片段
 	 * @param charArray
@@ -170,6 +228,41 @@ class DictSegment implements Comparable<DictSegment>{
 		this.fillSegment(charArray, 0 , charArray.length , 1); 
 	}
 	
+	/**
+	 * 将另一棵词典树中的词全部加入当前词典树
+	 * @param other
+	 */
+	synchronized void fillSegment(DictSegment other){
+		for(DictSegment child : other.getChildren()){
+			DictSegment ds = this.lookforSegment(child.nodeChar , 1);
+			if(child.nodeState == 1){
+				ds.nodeState = 1;
+			}
+			ds.fillSegment(child);
+		}
+	}
+	
+	/**
+	 * 按字符顺序列出以当前节点为根的全部词
+	 * @return List<char[]>
+	 */
+	List<char[]> getWords(){
+		List<char[]> words = new ArrayList<char[]>();
+		this.collectWords(new StringBuilder() , words);
+		return words;
+	}
+
+	private void collectWords(StringBuilder word , List<char[]> words){
+		for(DictSegment child : this.getChildren()){
+			word.append(child.nodeChar);
+			if(child.nodeState == 1){
+				words.add(word.toString().toCharArray());
+			}
+			child.collectWords(word , words);
+			word.setLength(word.length() - 1);
+		}
+	}
+
 	/**
 	 * 屏蔽词典中的一个词
 	 * @param charArray
@@ -178,6 +271,39 @@ class DictSegment implements Comparable<DictSegment>{
 		this.fillSegment(charArray, 0 , charArray.length , 0); 
 	}
 	
+	/**
+	 * 词典树本身可以修改，直接返回当前节点
+	 */
+	public DictSegment toSegment(){
+		return this;
+	}
+
+	public void collectStats(DictStats stats){
+		//先读节点数组，再读字符数组，与getChild的读取顺序一致
+		DictSegment[] segmentArray = this.childrenArray;
+		char[] keys = this.childrenChars;
+		stats.addNodes(1);
+		//两个数组引用、节点字符、子节点数目、节点状态
+		stats.addHeapBytes(DictStats.objectBytes(18));
+		if(this.nodeState == 1){
+			stats.addWords(1);
+		}
+		if(segmentArray == null){
+			return;
+		}
+		if(segmentArray.length <= ARRAY_LENGTH_LIMIT){
+			stats.addArrayNodes(1);
+		}else{
+			stats.addTableNodes(1);
+		}
+		stats.addHeapBytes(DictStats.arrayBytes(keys.length , 2) + DictStats.arrayBytes(segmentArray.length , 4));
+		for(DictSegment ds : segmentArray){
+			if(ds != null){
+				ds.collectStats(stats);
+			}
+		}
+	}
+
 	/**
 	 * 加载填充词典片段
 	 * @param charArray
@@ -186,17 +312,8 @@ class DictSegment implements Comparable<DictSegment>{
 	 * @param enabled
 	 */
 	private synchronized void fillSegment(char[] charArray , int begin , int length , int enabled){
-		//获取字典表中的汉字对象
-		Character beginChar = Character.valueOf(charArray[begin]);
-		Character keyChar = charMap.get(beginChar);
-		//字典中没有该字，则将其添加入字典
-		if(keyChar == null){
-			charMap.put(beginChar, beginChar);
-			keyChar = beginChar;
-		}
-		
 		//搜索当前节点的存储，查询对应keyChar的keyChar，如果没有则创建
-		DictSegment ds = lookforSegment(keyChar , enabled);
+		DictSegment ds = lookforSegment(charArray[begin] , enabled);
 		if(ds != null){
 			//处理keyChar对应的segment
 			if(length > 1){
@@ -210,6 +327,51 @@ class DictSegment implements Comparable<DictSegment>{
 		}
 
 	}
+
+	/**
+	 * 查询时查找keyChar对应的子节点，不加锁
+	 * 更新时先替换childrenChars再替换childrenArray，这里按相反顺序读取，
+	 * 读到的字符数组不会比节点数组旧；两者不一致时加锁重新查找
+	 * @param keyChar
+	 * @return DictSegment 没有找到时返回null
+	 */
+	private DictSegment getChild(char keyChar){
+		DictSegment[] segmentArray = this.childrenArray;
+		char[] keys = this.childrenChars;
+		if(segmentArray == null){
+			return null;
+		}
+		if(keys.length == segmentArray.length){
+			DictSegment ds = null;
+			if(segmentArray.length <= ARRAY_LENGTH_LIMIT){
+				//在有序数组中查找
+				int position = Arrays.binarySearch(keys , keyChar);
+				if(position < 0){
+					return null;
+				}
+				ds = segmentArray[position];
+			}else{
+				//在散列表中查找，遇到空位即不存在
+				int mask = segmentArray.length - 1;
+				for(int i = hash(keyChar) & mask ; ; i = (i + 1) & mask){
+					ds = segmentArray[i];
+					if(ds == null){
+						return null;
+					}
+					if(keys[i] == keyChar){
+						break;
+					}
+				}
+			}
+			if(ds.nodeChar == keyChar){
+				return ds;
+			}
+		}
+		//读到了正在更新的存储结构
+		synchronized(this){
+			return this.lookforSegment(keyChar , 0);
+		}
+	}
 	
 	/**
 	 * 查找本节点下对应的keyChar的segment	 * 
@@ -217,99 +379,414 @@ class DictSegment implements Comparable<DictSegment>{
 	 * @param create  =1如果没有找到，则创建新的segment ; =0如果没有找到，不创建，返回null
 	 * @return
 	 */
-	private DictSegment lookforSegment(Character keyChar ,  int create){
+	private DictSegment lookforSegment(char keyChar ,  int create){
 		
 		DictSegment ds = null;
+		char[] keys = this.childrenChars;
+		DictSegment[] segmentArray = this.childrenArray;
 
 		if(this.storeSize <= ARRAY_LENGTH_LIMIT){
-			//获取数组容器，如果数组未创建则创建数组
-			DictSegment[] segmentArray = getChildrenArray();			
-			//搜寻数组
-			DictSegment keySegment = new DictSegment(keyChar);
-			int position = Arrays.binarySearch(segmentArray, 0 , this.storeSize, keySegment);
+			//搜寻有序数组
+			int position = this.storeSize == 0 ? -1 : Arrays.binarySearch(keys , keyChar);
 			if(position >= 0){
-				ds = segmentArray[position];
+				return segmentArray[position];
 			}
 		
 			//遍历数组后没有找到对应的segment
-			if(ds == null && create == 1){
-				ds = keySegment;
+			if(create == 1){
+				ds = new DictSegment(keyChar);
 				if(this.storeSize < ARRAY_LENGTH_LIMIT){
-					//数组容量未满，使用数组存储
-					segmentArray[this.storeSize] = ds;
-					//segment数目+1
+					//数组容量未满，复制出插入新节点后的有序数组
+					int insertion = -(position + 1);
+					char[] newKeys = new char[this.storeSize + 1];
+					DictSegment[] newArray = new DictSegment[this.storeSize + 1];
+					if(this.storeSize > 0){
+						System.arraycopy(keys , 0 , newKeys , 0 , insertion);
+						System.arraycopy(keys , insertion , newKeys , insertion + 1 , this.storeSize - insertion);
+						System.arraycopy(segmentArray , 0 , newArray , 0 , insertion);
+						System.arraycopy(segmentArray , insertion , newArray , insertion + 1 , this.storeSize - insertion);
+					}
+					newKeys[insertion] = keyChar;
+					newArray[insertion] = ds;
+					//segment数目+1 ， 必须在替换数组前执行storeSize++ ， 确保查询时hasNextNode为true即可取到子节点
 					this.storeSize++;
-					Arrays.sort(segmentArray , 0 , this.storeSize);
-					
+					this.childrenChars = newKeys;
+					this.childrenArray = newArray;
 				}else{
-					//数组容量已满，切换Map存储
-					//获取Map容器，如果Map未创建,则创建Map
-					Map<Character , DictSegment> segmentMap = getChildrenMap();
-					//将数组中的segment迁移到Map中
-					migrate(segmentArray ,  segmentMap);
-					//存储新的segment
-					segmentMap.put(keyChar, ds);
-					//segment数目+1 ，  必须在释放数组前执行storeSize++ ， 确保极端情况下，不会取到空的数组
-					this.storeSize++;
-					//释放当前的数组引用
-					this.childrenArray = null;
+					//数组容量已满，切换散列表存储
+					this.rehash(TABLE_MIN_CAPACITY , ds);
 				}
-
-			}			
+			}
 			
 		}else{
-			//获取Map容器，如果Map未创建,则创建Map
-			Map<Character , DictSegment> segmentMap = getChildrenMap();
-			//搜索Map
-			ds = (DictSegment)segmentMap.get(keyChar);
-			if(ds == null && create == 1){
+			//搜索散列表
+			int mask = segmentArray.length - 1;
+			int i = hash(keyChar) & mask;
+			while(segmentArray[i] != null){
+				if(keys[i] == keyChar){
+					return segmentArray[i];
+				}
+				i = (i + 1) & mask;
+			}
+			if(create == 1){
 				//构造新的segment
 				ds = new DictSegment(keyChar);
-				segmentMap.put(keyChar , ds);
-				//当前节点存储segment数目+1
-				this.storeSize ++;
+				if((this.storeSize + 1) * 4 > segmentArray.length * 3){
+					//装载因子超过0.75，扩容
+					this.rehash(segmentArray.length << 1 , ds);
+				}else{
+					//先写入字符再写入节点，查询时以节点为空判断空位
+					keys[i] = keyChar;
+					segmentArray[i] = ds;
+					//当前节点存储segment数目+1
+					this.storeSize ++;
+				}
 			}
 		}
 
 		return ds;
 	}
-	
-	
+
 	/**
-	 * 获取数组容器
-	 * 线程同步方法
+	 * 将现有子节点与新节点放入新的散列表
+	 * @param capacity 散列表容量
+	 * @param newSegment 新增的segment
 	 */
-	private DictSegment[] getChildrenArray(){
-		synchronized(this){
-			if(this.childrenArray == null){
-					this.childrenArray = new DictSegment[ARRAY_LENGTH_LIMIT];
+	private void rehash(int capacity , DictSegment newSegment){
+		char[] newKeys = new char[capacity];
+		DictSegment[] newArray = new DictSegment[capacity];
+		for(DictSegment segment : this.childrenArray){
+			if(segment != null){
+				put(newKeys , newArray , segment);
 			}
 		}
-		return this.childrenArray;
+		put(newKeys , newArray , newSegment);
+		this.storeSize++;
+		this.childrenChars = newKeys;
+		this.childrenArray = newArray;
 	}
-	
+
 	/**
-	 * 获取Map容器
-	 * 线程同步方法
-	 */	
-	private Map<Character , DictSegment> getChildrenMap(){
-		synchronized(this){
-			if(this.childrenMap == null){
-				this.childrenMap = new ConcurrentHashMap<Character, DictSegment>(ARRAY_LENGTH_LIMIT * 2,0.8f);
-			}
+	 * 线性探测放入散列表
+	 */
+	private static void put(char[] keys , DictSegment[] segmentArray , DictSegment segment){
+		int mask = segmentArray.length - 1;
+		int i = hash(segment.nodeChar) & mask;
+		while(segmentArray[i] != null){
+			i = (i + 1) & mask;
 		}
-		return this.childrenMap;
+		keys[i] = segment.nodeChar;
+		segmentArray[i] = segment;
 	}
-	
+
 	/**
-	 * 将数组中的segment迁移到Map中
-	 * @param segmentArray
+	 * 打散连续的字符编码，减少线性探测的聚集
 	 */
-	private void migrate(DictSegment[] segmentArray , Map<Character , DictSegment> segmentMap){
-		for(DictSegment segment : segmentArray){
-			if(segment != null){
-				segmentMap.put(segment.nodeChar, segment);
+	private static int hash(char keyChar){
+		int h = keyChar * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * 批量构造词典树
+	 * 先收集全部词，一次排序后逐层构造，每个节点的子节点数组只分配一次，不经过逐词插入的复制和扩容
+	 * 收集的词连续存放在同一个字符数组中，按偏移和长度引用，不为每个词创建对象
+	 */
+	static final class Builder{
+
+		//全部词的字符
+		private char[] chars = new char[1024];
+		private int charCount;
+		//每个词在chars中的偏移和长度
+		private int[] starts = new int[64];
+		private int[] lengths = new int[64];
+		private int count;
+
+		/**
+		 * 加入一个词，空词忽略
+		 * @param charArray
+		 */
+		void add(char[] charArray){
+			this.add(charArray , 0 , charArray.length);
+		}
+
+		/**
+		 * 加入charArray中从offset开始的length个字符组成的词，空词忽略
+		 * @param charArray
+		 * @param offset
+		 * @param length
+		 */
+		void add(char[] charArray , int offset , int length){
+			if(length == 0){
+				return;
+			}
+			if(this.count == this.starts.length){
+				this.starts = Arrays.copyOf(this.starts , this.count << 1);
+				this.lengths = Arrays.copyOf(this.lengths , this.count << 1);
+			}
+			if(this.charCount + length > this.chars.length){
+				this.chars = Arrays.copyOf(this.chars , Math.max(this.chars.length << 1 , this.charCount + length));
+			}
+			System.arraycopy(charArray , offset , this.chars , this.charCount , length);
+			this.starts[this.count] = this.charCount;
+			this.lengths[this.count++] = length;
+			this.charCount += length;
+		}
+
+		/**
+		 * 加入另一个Builder收集的全部词
+		 * @param other
+		 */
+		void addAll(Builder other){
+			for(int i = 0 ; i < other.count ; i++){
+				this.add(other.chars , other.starts[i] , other.lengths[i]);
+			}
+		}
+
+		/**
+		 * 依次把收集到的词交给consumer，重复的词不去除
+		 * @param consumer
+		 */
+		void forEach(DictFileReader.WordConsumer consumer){
+			for(int i = 0 ; i < this.count ; i++){
+				consumer.add(this.chars , this.starts[i] , this.lengths[i]);
+			}
+		}
+
+		/**
+		 * 在调用线程中构造词典树，重复的词只保留一个
+		 * @return DictSegment 根节点
+		 */
+		DictSegment build(){
+			return this.build(null , 1);
+		}
+
+		/**
+		 * 构造词典树，重复的词只保留一个
+		 * 词数达到PARALLEL_BUILD_THRESHOLD且parallelism大于1时按首字符分区，由调用线程和executor中的线程并行构造
+		 * @param executor 分担构造的线程池，可以是调用线程所在的线程池
+		 * @param parallelism 并行构造的线程数，包括调用线程
+		 * @return DictSegment 根节点
+		 */
+		DictSegment build(Executor executor , int parallelism){
+			if(parallelism > 1 && this.count >= PARALLEL_BUILD_THRESHOLD){
+				return this.buildParallel(executor , parallelism);
+			}
+			int[] order = new int[this.count];
+			for(int i = 0 ; i < this.count ; i++){
+				order[i] = i;
+			}
+			this.sort(order , new int[this.count] , 0 , this.count);
+			DictSegment root = new DictSegment((char) 0);
+			this.fill(root , order , 0 , this.count , 0);
+			return root;
+		}
+
+		/**
+		 * 按首字符把词分到根节点的各个子树，并行排序、构造各子树，最后一次性挂到根节点
+		 * 调用线程和提交到executor的线程依次领取未构造的子树，调用线程不等待尚未开始的线程，executor繁忙或就是调用线程所在的线程池时也不会死锁
+		 * 分区后每次排序的词更少，单线程时也比整体排序快
+		 */
+		private DictSegment buildParallel(Executor executor , int parallelism){
+			//按首字符计数排序，每个首字符的词在order中连续存放
+			int[] bucketStart = new int[Character.MAX_VALUE + 2];
+			for(int i = 0 ; i < this.count ; i++){
+				bucketStart[this.charAt(i , 0) + 1]++;
+			}
+			int buckets = 0;
+			for(int c = 0 ; c <= Character.MAX_VALUE ; c++){
+				if(bucketStart[c + 1] > 0){
+					buckets++;
+				}
+				bucketStart[c + 1] += bucketStart[c];
+			}
+			int[] order = new int[this.count];
+			int[] filled = new int[Character.MAX_VALUE + 1];
+			for(int i = 0 ; i < this.count ; i++){
+				char c = this.charAt(i , 0);
+				order[bucketStart[c] + filled[c]++] = i;
+			}
+			filled = null;
+
+			char[] keys = new char[buckets];
+			DictSegment[] segmentArray = new DictSegment[buckets];
+			int n = 0;
+			for(int c = 0 ; c <= Character.MAX_VALUE ; c++){
+				if(bucketStart[c] < bucketStart[c + 1]){
+					keys[n] = (char) c;
+					segmentArray[n++] = new DictSegment((char) c);
+				}
+			}
+			int[] buffer = new int[this.count];
+			AtomicInteger next = new AtomicInteger();
+			CountDownLatch done = new CountDownLatch(buckets);
+			AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+			Runnable worker = () -> {
+				for(int b = next.getAndIncrement() ; b < segmentArray.length ; b = next.getAndIncrement()){
+					DictSegment ds = segmentArray[b];
+					int from = bucketStart[ds.nodeChar];
+					int to = bucketStart[ds.nodeChar + 1];
+					try{
+						this.sort(order , buffer , from , to);
+						if(this.lengths[order[from]] == 1){
+							ds.nodeState = 1;
+						}
+						this.fill(ds , order , from , to , 1);
+					}catch(RuntimeException | Error e){
+						failure.compareAndSet(null , e);
+					}finally{
+						done.countDown();
+					}
+				}
+			};
+			for(int i = 1 ; i < parallelism ; i++){
+				try{
+					executor.execute(worker);
+				}catch(RejectedExecutionException e){
+					//线程池已关闭，其余子树由调用线程构造
+					break;
+				}
+			}
+			worker.run();
+			awaitUninterruptibly(done);
+			Throwable e = failure.get();
+			if(e instanceof Error){
+				throw (Error) e;
+			}
+			if(e != null){
+				throw (RuntimeException) e;
+			}
+			DictSegment root = new DictSegment((char) 0);
+			setChildren(root , keys , segmentArray);
+			return root;
+		}
+
+		/**
+		 * 等待已领取的子树构造完成，期间的中断在返回后恢复
+		 */
+		private static void awaitUninterruptibly(CountDownLatch latch){
+			boolean interrupted = false;
+			while(true){
+				try{
+					latch.await();
+					break;
+				}catch(InterruptedException e){
+					interrupted = true;
+				}
+			}
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * 构造node的全部子节点
+		 * order[from, to)中的词有序，且前depth个字符都是node的路径，长度为depth的词已排在最前
+		 */
+		private void fill(DictSegment node , int[] order , int from , int to , int depth){
+			//跳过在node结束的词
+			while(from < to && this.lengths[order[from]] == depth){
+				from++;
+			}
+			if(from == to){
+				return;
+			}
+			//统计子节点数目
+			int count = 1;
+			for(int i = from + 1 ; i < to ; i++){
+				if(this.charAt(order[i] , depth) != this.charAt(order[i - 1] , depth)){
+					count++;
+				}
+			}
+			char[] keys = new char[count];
+			DictSegment[] segmentArray = new DictSegment[count];
+			int n = 0;
+			for(int start = from ; start < to ; ){
+				char keyChar = this.charAt(order[start] , depth);
+				int end = start + 1;
+				while(end < to && this.charAt(order[end] , depth) == keyChar){
+					end++;
+				}
+				DictSegment ds = new DictSegment(keyChar);
+				if(this.lengths[order[start]] == depth + 1){
+					ds.nodeState = 1;
+				}
+				this.fill(ds , order , start , end , depth + 1);
+				keys[n] = keyChar;
+				segmentArray[n++] = ds;
+				start = end;
+			}
+			setChildren(node , keys , segmentArray);
+		}
+
+		/**
+		 * 设置node的子节点，超过ARRAY_LENGTH_LIMIT个时转为散列表
+		 * @param keys 有序的子节点字符
+		 * @param segmentArray 与keys一一对应的子节点
+		 */
+		private static void setChildren(DictSegment node , char[] keys , DictSegment[] segmentArray){
+			int count = keys.length;
+			if(count > ARRAY_LENGTH_LIMIT){
+				//与逐词插入相同，装载因子不超过0.75
+				int capacity = TABLE_MIN_CAPACITY;
+				while(count * 4 > capacity * 3){
+					capacity <<= 1;
+				}
+				char[] tableKeys = new char[capacity];
+				DictSegment[] table = new DictSegment[capacity];
+				for(DictSegment ds : segmentArray){
+					put(tableKeys , table , ds);
+				}
+				keys = tableKeys;
+				segmentArray = table;
+			}
+			node.storeSize = count;
+			node.childrenChars = keys;
+			node.childrenArray = segmentArray;
+		}
+
+		private char charAt(int word , int index){
+			return this.chars[this.starts[word] + index];
+		}
+
+		/**
+		 * 归并排序order[from, to)，buffer为同样长度的临时数组
+		 */
+		private void sort(int[] order , int[] buffer , int from , int to){
+			if(to - from < 2){
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			this.sort(order , buffer , from , middle);
+			this.sort(order , buffer , middle , to);
+			if(this.compare(order[middle - 1] , order[middle]) <= 0){
+				return;
+			}
+			System.arraycopy(order , from , buffer , from , to - from);
+			for(int i = from , l = from , r = middle ; i < to ; i++){
+				if(r >= to || (l < middle && this.compare(buffer[l] , buffer[r]) <= 0)){
+					order[i] = buffer[l++];
+				}else{
+					order[i] = buffer[r++];
+				}
+			}
+		}
+
+		/**
+		 * 按字符逐个比较，前缀排在前面
+		 */
+		private int compare(int a , int b){
+			int aStart = this.starts[a];
+			int bStart = this.starts[b];
+			int length = Math.min(this.lengths[a] , this.lengths[b]);
+			for(int i = 0 ; i < length ; i++){
+				char ac = this.chars[aStart + i];
+				char bc = this.chars[bStart + i];
+				if(ac != bc){
+					return Character.compare(ac , bc);
+				}
 			}
+			return this.lengths[a] - this.lengths[b];
 		}
 	}
 
@@ -320,7 +797,7 @@ class DictSegment implements Comparable<DictSegment>{
 	 */
 	public int compareTo(DictSegment o) {
 		//对当前节点存储的char进行比较
-		return this.nodeChar.compareTo(o.nodeChar);
+		return Character.compare(this.nodeChar , o.nodeChar);
 	}
 	
 }
@@ -0,0 +1,98 @@
+package org.wltea.analyzer.dic;
+
+/**
+ * 词典内存统计
+ * 字节数按64位JVM开启压缩指针估算：对象头12字节，数组头16字节，按8字节对齐
+ */
+public final class DictStats {
+
+	//词的数目
+	private long words;
+	//词典树节点或双数组状态的数目，FST不统计
+	private long nodes;
+	//以有序数组存放子节点的词典树节点数目
+	private long arrayNodes;
+	//以散列表存放子节点的词典树节点数目
+	private long tableNodes;
+	//估计占用的堆内字节数
+	private long heapBytes;
+	//内存映射的堆外字节数
+	private long mappedBytes;
+
+	void addWords(long words){
+		this.words += words;
+	}
+
+	void addNodes(long nodes){
+		this.nodes += nodes;
+	}
+
+	void addArrayNodes(long arrayNodes){
+		this.arrayNodes += arrayNodes;
+	}
+
+	void addTableNodes(long tableNodes){
+		this.tableNodes += tableNodes;
+	}
+
+	void addHeapBytes(long heapBytes){
+		this.heapBytes += heapBytes;
+	}
+
+	void addMappedBytes(long mappedBytes){
+		this.mappedBytes += mappedBytes;
+	}
+
+	public long getWords(){
+		return this.words;
+	}
+
+	public long getNodes(){
+		return this.nodes;
+	}
+
+	public long getArrayNodes(){
+		return this.arrayNodes;
+	}
+
+	public long getTableNodes(){
+		return this.tableNodes;
+	}
+
+	public long getHeapBytes(){
+		return this.heapBytes;
+	}
+
+	public long getMappedBytes(){
+		return this.mappedBytes;
+	}
+
+	/**
+	 * 数组占用的字节数
+	 * @param length 数组长度
+	 * @param elementBytes 元素字节数，引用按4字节计算
+	 * @return long
+	 */
+	static long arrayBytes(int length , int elementBytes){
+		return align(16 + (long) length * elementBytes);
+	}
+
+	/**
+	 * 对象占用的字节数
+	 * @param fieldBytes 全部字段的字节数
+	 * @return long
+	 */
+	static long objectBytes(int fieldBytes){
+		return align(12 + fieldBytes);
+	}
+
+	private static long align(long bytes){
+		return (bytes + 7) & ~7L;
+	}
+
+	@Override
+	public String toString(){
+		return "words: " + this.words + ", nodes: " + this.nodes + ", array nodes: " + this.arrayNodes + ", table nodes: " + this.tableNodes
+				+ ", heap bytes: " + this.heapBytes + ", mapped bytes: " + this.mappedBytes;
+	}
+}
@@ -0,0 +1,53 @@
+package org.wltea.analyzer.dic;
+
+/**
+ * 词典树匹配接口
+ * 词典可以由不同的存储结构实现（对象树、双数组等），对分词器保持相同的Hit匹配方式
+ * 接口只包含查询，双数组、FST等编译后的结构构造完成后不再修改，可以不加锁并发读取
+ * 运行时新增、屏蔽的词只写入OverlayDictTrie的覆盖层，加载过程中的词典树由DictSegment直接修改
+ */
+interface DictTrie {
+
+	/**
+	 * 从根节点开始匹配词段
+	 * @param charArray
+	 * @param begin
+	 * @param length
+	 * @param searchHit 为null时新建Hit，否则重置后复用
+	 * @return Hit
+	 */
+	Hit match(char[] charArray , int begin , int length , Hit searchHit);
+
+	/**
+	 * 从Hit记录的匹配位置继续向下匹配一个字符
+	 * @param charArray
+	 * @param currentIndex
+	 * @param matchedHit 前缀匹配的Hit
+	 * @return Hit
+	 */
+	Hit matchWithHit(char[] charArray , int currentIndex , Hit matchedHit);
+
+	/**
+	 * 从begin开始沿词典树遍历一次，找出所有以begin开头的词
+	 * @param charArray
+	 * @param begin
+	 * @param end 匹配区域结束位置（不含）
+	 * @param lengths 按由短到长的顺序存放词的长度
+	 * @param searchHit 复用的Hit，记录遍历停止的位置及该位置的匹配状态
+	 * @return int 词的数目，最多lengths.length个
+	 */
+	int matchPrefixes(char[] charArray , int begin , int end , int[] lengths , Hit searchHit);
+
+	/**
+	 * 将词典中的词还原为可修改的词典树，用于追加或屏蔽词后重建
+	 * @return DictSegment
+	 */
+	DictSegment toSegment();
+
+	/**
+	 * 统计词数、节点数及估计占用的内存
+	 * @param stats 累加统计结果
+	 */
+	void collectStats(DictStats stats);
+
+}
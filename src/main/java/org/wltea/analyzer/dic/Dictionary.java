@@ -36,11 +36,14 @@ import org.elasticsearch.SpecialPermission;
 import org.elasticsearch.core.PathUtils;
 import org.elasticsearch.plugin.analysis.ik.AnalysisIkPlugin;
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.core.SegmenterWarmUp;
 import org.wltea.analyzer.help.ESPluginLoggerFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -49,11 +52,23 @@ import java.security.PrivilegedAction;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * 词典管理类,单子模式
@@ -63,13 +78,31 @@ public class Dictionary {
     /*
      * 词典单子实例
      */
-    private static Dictionary singleton;
+    private static volatile Dictionary singleton;
 
-    private DictSegment _MainDict;
+    /*
+     * 当前版本的主词典、量词词典和停止词词典，重建后整体替换
+     */
+    private volatile DictionarySnapshot current;
+
+    /*
+     * 全部重建请求经由此合并执行
+     */
+    private ReloadScheduler reloadScheduler;
+
+    /*
+     * 以下为加载中的词典，加载完成后由takeLoaded发布为DictionarySnapshot
+     */
+    private OverlayDictTrie _MainDict;
 
-    private DictSegment _QuantifierDict;
+    /*
+     * 主词典的Aho-Corasick自动机，未启用单遍扫描时为null
+     */
+    private AhoCorasickAutomaton _MainAutomaton;
 
-    private DictSegment _StopWords;
+    private DictTrie _QuantifierDict;
+
+    private DictTrie _StopWords;
 
     /**
      * 配置对象
@@ -80,16 +113,17 @@ public class Dictionary {
 
     private static ScheduledExecutorService pool = Executors.newScheduledThreadPool(1);
 
+    /*
+     * 并发加载词典的最大线程数
+     */
+    private static final int MAX_LOADING_THREADS = 4;
+
     private static final String PATH_DIC_MAIN = "main.dic";
 
-    private static final String PATH_DIC_SURNAME = "surname.dic";
+    static final String PATH_DIC_COMPILED = "ik.ikd";
 
     private static final String PATH_DIC_QUANTIFIER = "quantifier.dic";
 
-    private static final String PATH_DIC_SUFFIX = "suffix.dic";
-
-    private static final String PATH_DIC_PREP = "preposition.dic";
-
     private static final String PATH_DIC_STOP = "stopword.dic";
 
     private final static String FILE_NAME = "IKAnalyzer.cfg.xml";
@@ -102,10 +136,95 @@ public class Dictionary {
 
     private final static String REMOTE_EXT_STOP = "remote_ext_stopwords";
 
+    private final static String DICT_ENGINE = "dict_engine";
+
+    private final static String DICT_ENGINE_FST = "fst";
+
+    private final static String CJK_SCAN_MODE = "cjk_scan_mode";
+
+    private final static String CJK_SCAN_MODE_AHO_CORASICK = "aho_corasick";
+
+    private final static String DICT_SNAPSHOT = "dict_snapshot";
+
+    /**
+     * 快照中记录本地词典文件修改时间的项
+     */
+    private final static String SNAPSHOT_MTIME = "mtime";
+
+    private final static String WARMUP_MILLIS = "warmup_millis";
+
+    private final static String WARMUP_CORPUS = "warmup_corpus";
+
+    private static final String PATH_WARMUP_CORPUS = "warmup.txt";
+
+    private final static String RELOAD_WINDOW_MILLIS = "reload_window_millis";
+
+    /*
+     * 默认在5秒内到达的重建请求合并为一次重建
+     */
+    private static final long DEFAULT_RELOAD_WINDOW_MILLIS = 5000;
+
+    /*
+     * 合并后词典快照所在的数据目录子目录及文件名
+     */
+    private static final String PATH_SNAPSHOT_DIR = "analysis-ik";
+
+    private static final String PATH_SNAPSHOT = "ik.snapshot";
+
+    private static final String PATH_JDBC_RELOAD = "jdbc-reload.properties";
+
     private Path conf_dir;
 
     private Properties props;
 
+    /**
+     * 预编译词典，不存在或不可用时为null
+     */
+    private DictArtifact artifact;
+
+    /**
+     * 远程词典的版本，location对应"Last-Modified\tETag"
+     */
+    private final Map<String, String> remoteVersions = new ConcurrentHashMap<String, String>();
+
+    /**
+     * 远程词典上次下载的词，location对应词的集合，远程词典更新时与新下载的词比较
+     */
+    private final Map<String, Set<String>> remoteWords = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * 上次重建之后按远程词典的差异新增、屏蔽的词，重建时由远程词典重新加载，不再从覆盖层合并
+     */
+    private final Set<String> remoteDeltaWords = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 上次重建时只由远程扩展词典提供的词，不在本地词典、数据库和覆盖层中，远程词典删除这些词时才需要屏蔽
+     */
+    private volatile Set<String> remoteOnlyWords = Collections.emptySet();
+
+    /**
+     * 重建期间写入覆盖层的词，按写入顺序记录，新词典发布前重放到新的覆盖层，不在重建时为null
+     * 与覆盖层的写入、新词典的发布都在overlayWriteLock内进行
+     */
+    private List<OverlayWrite> overlayWrites;
+
+    private final Object overlayWriteLock = new Object();
+
+    /**
+     * 是否已启动远程词典监控
+     */
+    private boolean remoteMonitoring;
+
+    /**
+     * 上次重建前数据库变化检测的结果，未配置检测查询或检测失败时为null
+     */
+    private volatile String jdbcVersion;
+
+    /**
+     * 远程词典和数据库是否已加载完成，此前只有本地词典、预编译词典或快照中的词可用
+     */
+    private volatile boolean ready;
+
     private Dictionary(Configuration cfg) {
         this.configuration = cfg;
         this.props         = new Properties();
@@ -137,6 +256,18 @@ public class Dictionary {
         }
     }
 
+    /**
+     * 离线编译词典时使用，不依赖Elasticsearch运行环境
+     * @param conf_dir IKAnalyzer.cfg.xml所在的配置目录
+     */
+    Dictionary(Path conf_dir) throws IOException {
+        this.props    = new Properties();
+        this.conf_dir = conf_dir;
+        try (InputStream input = Files.newInputStream(conf_dir.resolve(FILE_NAME))) {
+            props.loadFromXML(input);
+        }
+    }
+
     private String getProperty(String key) {
         if (props != null) {
             return props.getProperty(key);
@@ -147,31 +278,46 @@ public class Dictionary {
     /**
      * 词典初始化 由于IK Analyzer的词典采用Dictionary类的静态方法进行词典初始化
      * 只有当Dictionary类被实际调用时，才会开始载入词典， 这将延长首次分词操作的时间 该方法提供了一个在应用加载阶段就初始化字典的手段
-     * @return Dictionary
+     * 已初始化时直接返回，不加锁
      */
-    public static synchronized void initial(Configuration cfg) {
+    public static void initial(Configuration cfg) {
         if (singleton == null) {
             synchronized (Dictionary.class) {
                 if (singleton == null) {
 
-                    singleton = new Dictionary(cfg);
-                    singleton.loadMainDict();
-                    singleton.loadSurnameDict();
-                    singleton.loadQuantifierDict();
-                    singleton.loadSuffixDict();
-                    singleton.loadPrepDict();
-                    singleton.loadStopWordDict();
-
-                    if (cfg.isEnableRemoteDict()) {
-                        // 建立监控线程
-                        for (String location : singleton.getRemoteExtDictionarys()) {
-                            // 10 秒是初始延迟可以修改的 60是间隔时间 单位秒
-                            pool.scheduleAtFixedRate(new Monitor(location), 10, 60, TimeUnit.SECONDS);
-                        }
-                        for (String location : singleton.getRemoteExtStopWordDictionarys()) {
-                            pool.scheduleAtFixedRate(new Monitor(location), 10, 60, TimeUnit.SECONDS);
+                    Dictionary dictionary = new Dictionary(cfg);
+                    // 启动时只同步加载本地词典，有可用的快照时直接加载快照
+                    // 远程词典和数据库在后台加载，完成后合并到词典并标记为就绪
+                    boolean      slowSources = dictionary.hasSlowSources();
+                    DictArtifact snapshot    = dictionary.loadSnapshot();
+                    if (snapshot != null) {
+                        dictionary.applySnapshot(snapshot);
+                    } else {
+                        dictionary.artifact = dictionary.loadArtifact();
+                        // 各词典及其词典源并发加载
+                        ExecutorService loader = newLoadingExecutor();
+                        try {
+                            await(CompletableFuture.allOf(
+                                    dictionary.loadMainDict(null, Collections.<String>emptySet(), loader, false),
+                                    dictionary.loadQuantifierDict(loader),
+                                    dictionary.loadStopWordDict(loader, false)));
+                        } finally {
+                            loader.shutdown();
                         }
                     }
+                    dictionary.current = dictionary.takeLoaded(1);
+                    dictionary.logStats();
+                    boolean background = snapshot != null || slowSources;
+                    dictionary.ready = !background;
+                    dictionary.reloadScheduler = new ReloadScheduler(pool, dictionary.getReloadWindowMillis(), dictionary::reLoadMainDictPrivileged);
+                    // 加载完成后才发布，其他线程不加锁读取时不会看到未加载完的词典
+                    singleton = dictionary;
+                    if (background) {
+                        // 后台立即加载全部词典源，完成后更新快照
+                        dictionary.reloadScheduler.request("startup", 0);
+                    } else {
+                        pool.execute(dictionary::writeSnapshot);
+                    }
 
                     pool.scheduleAtFixedRate(new DbMonitor(), 10, 60, TimeUnit.SECONDS);
                 }
@@ -179,6 +325,29 @@ public class Dictionary {
         }
     }
 
+    /**
+     * 启动远程词典监控，多次调用只启动一次
+     * enable_remote_dict是分词器的配置项，节点配置中没有，因此不在initial中启动，
+     * 由第一个启用了远程词典的分词器配置触发，所有分词器都关闭远程词典时不监控
+     */
+    public static void startRemoteMonitors() {
+        Dictionary dictionary = getSingleton();
+        synchronized (Dictionary.class) {
+            if (dictionary.remoteMonitoring) {
+                return;
+            }
+            dictionary.remoteMonitoring = true;
+        }
+        // 建立监控线程，以加载时得到的版本为初始版本，版本未变化时不重复加载
+        for (String location : dictionary.getRemoteExtDictionarys()) {
+            // 10 秒是初始延迟可以修改的 60是间隔时间 单位秒
+            pool.scheduleAtFixedRate(dictionary.newMonitor(location), 10, 60, TimeUnit.SECONDS);
+        }
+        for (String location : dictionary.getRemoteExtStopWordDictionarys()) {
+            pool.scheduleAtFixedRate(dictionary.newMonitor(location), 10, 60, TimeUnit.SECONDS);
+        }
+    }
+
     private void walkFileTree(List<String> files, Path path) {
         if (Files.isRegularFile(path)) {
             files.add(path.toString());
@@ -204,21 +373,10 @@ public class Dictionary {
         }
     }
 
-    private void loadDictFile(DictSegment dict, Path file, boolean critical, String name) {
-        try (InputStream is = new FileInputStream(file.toFile())) {
-            BufferedReader br = new BufferedReader(
-                    new InputStreamReader(is, "UTF-8"), 512);
-            String word = br.readLine();
-            if (word != null) {
-                if (word.startsWith("\uFEFF"))
-                    word = word.substring(1);
-                for (; word != null; word = br.readLine()) {
-                    word = word.trim();
-                    if (word.isEmpty()) continue;
-                    dict.fillSegment(word.toCharArray());
-                }
-            }
-        } catch (FileNotFoundException e) {
+    private void loadDictFile(DictSegment.Builder dict, Path file, boolean critical, String name) {
+        try {
+            DictFileReader.read(file, dict::add);
+        } catch (NoSuchFileException e) {
             logger.error("ik-analyzer: " + name + " not found", e);
             if (critical) throw new RuntimeException("ik-analyzer: " + name + " not found!!!", e);
         } catch (IOException e) {
@@ -292,6 +450,58 @@ public class Dictionary {
         return remoteExtStopWordDictFiles;
     }
 
+    /**
+     * 是否将词典编译为Lucene FST，默认主词典使用双数组，其他词典使用词典树
+     */
+    private boolean isFstEngine() {
+        String engine = getProperty(DICT_ENGINE);
+        return engine != null && DICT_ENGINE_FST.equalsIgnoreCase(engine.trim());
+    }
+
+    /**
+     * 将加载完成的主词典编译为查询结构
+     */
+    private DictTrie compileMainDict(DictSegment mainDict) {
+        if (isFstEngine()) {
+            FSTDictTrie fst = FSTDictTrie.build(mainDict);
+            logger.info("[Dict Loading] main dict compiled to fst, ram bytes: {}", fst.ramBytesUsed());
+            return fst;
+        }
+        DoubleArrayTrie trie = DoubleArrayTrie.build(mainDict);
+        logger.info("[Dict Loading] main dict compiled to double array trie, states: {}, capacity: {}", trie.size(), trie.capacity());
+        return trie;
+    }
+
+    /**
+     * 是否以Aho-Corasick自动机单遍扫描主词典，默认在每个位置分别匹配
+     */
+    private boolean isAhoCorasickScan() {
+        String mode = getProperty(CJK_SCAN_MODE);
+        return mode != null && CJK_SCAN_MODE_AHO_CORASICK.equalsIgnoreCase(mode.trim());
+    }
+
+    /**
+     * 为主词典的冻结层构造Aho-Corasick自动机
+     * 冻结层不是单一双数组（FST、与预编译词典合并查询等）时，另行编译一份双数组
+     */
+    private AhoCorasickAutomaton buildMainAutomaton(DictTrie frozen) {
+        if (!isAhoCorasickScan()) {
+            return null;
+        }
+        boolean shared = frozen instanceof DoubleArrayTrie;
+        DoubleArrayTrie trie = shared ? (DoubleArrayTrie) frozen : DoubleArrayTrie.build(frozen.toSegment());
+        AhoCorasickAutomaton automaton = AhoCorasickAutomaton.build(trie, !shared);
+        logger.info("[Dict Loading] main dict aho-corasick automaton built, states: {}", trie.size());
+        return automaton;
+    }
+
+    /**
+     * 将加载完成的量词、停止词词典编译为查询结构
+     */
+    private DictTrie compileDict(DictSegment dict) {
+        return isFstEngine() ? FSTDictTrie.build(dict) : dict;
+    }
+
     private String getDictRoot() {
         return conf_dir.toAbsolutePath().toString();
     }
@@ -307,41 +517,130 @@ public class Dictionary {
         return singleton;
     }
 
+    /**
+     * 当前版本的词典，分词器在一个词元流中固定使用同一版本
+     * @return DictionarySnapshot
+     */
+    public DictionarySnapshot getDictionarySnapshot() {
+        return current;
+    }
+
+    /**
+     * 以加载完成的各词典创建DictionarySnapshot，并清空加载用的字段
+     * @param version 版本号
+     */
+    private DictionarySnapshot takeLoaded(long version) {
+        DictionarySnapshot snapshot = new DictionarySnapshot(_MainDict, _MainAutomaton, _QuantifierDict, _StopWords, version);
+        _MainDict       = null;
+        _MainAutomaton  = null;
+        _QuantifierDict = null;
+        _StopWords      = null;
+        return snapshot;
+    }
+
+    /**
+     * 远程词典和数据库是否已加载完成
+     * 未完成时分词只使用本地词典、预编译词典或快照中的词
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 统计各词典的词数、节点数及估计占用的内存
+     * @return Map<String, DictStats> 依次为主词典、量词词典、停止词词典
+     */
+    public Map<String, DictStats> getStats() {
+        Map<String, DictStats> stats = new LinkedHashMap<String, DictStats>();
+        DictionarySnapshot     dict  = current;
+        stats.put("main", collectStats(dict.getMainDict()));
+        stats.put("quantifier", collectStats(dict.getQuantifierDict()));
+        stats.put("stopwords", collectStats(dict.getStopWords()));
+        AhoCorasickAutomaton automaton = dict.getMainAutomaton();
+        if (automaton != null) {
+            DictStats automatonStats = new DictStats();
+            automaton.collectStats(automatonStats);
+            stats.put("main_automaton", automatonStats);
+        }
+        return stats;
+    }
+
+    private static DictStats collectStats(DictTrie dict) {
+        DictStats stats = new DictStats();
+        dict.collectStats(stats);
+        return stats;
+    }
+
+    private void logStats() {
+        for (Map.Entry<String, DictStats> entry : getStats().entrySet()) {
+            logger.info("[Dict Loading] {} dict {}", entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * 批量加载新词条
      * @param words Collection<String>词条列表
      */
     public void addWords(Collection<String> words) {
-        if (words != null) {
-            for (String word : words) {
-                if (word != null) {
-                    // 批量加载词条到主内存词典中
-                    singleton._MainDict.fillSegment(word.trim().toCharArray());
-                }
-            }
-        }
+        // 批量加载词条到主词典的覆盖层中，下次重建词典时合并
+        singleton.writeOverlay(words, true);
     }
 
     /**
      * 批量移除（屏蔽）词条
      */
     public void disableWords(Collection<String> words) {
-        if (words != null) {
+        // 批量屏蔽词条，记录在主词典的覆盖层中，下次重建词典时合并
+        singleton.writeOverlay(words, false);
+    }
+
+    private void writeOverlay(Collection<String> words, boolean enable) {
+        if (words == null) {
+            return;
+        }
+        synchronized (overlayWriteLock) {
+            OverlayDictTrie overlay = current.getMainDict();
             for (String word : words) {
                 if (word != null) {
-                    // 批量屏蔽词条
-                    singleton._MainDict.disableSegment(word.trim().toCharArray());
+                    OverlayWrite write = new OverlayWrite(word.trim().toCharArray(), enable);
+                    write.applyTo(overlay);
+                    if (overlayWrites != null) {
+                        overlayWrites.add(write);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * 一次覆盖层写入
+     */
+    private static final class OverlayWrite {
+
+        private final char[] word;
+
+        private final boolean enable;
+
+        OverlayWrite(char[] word, boolean enable) {
+            this.word = word;
+            this.enable = enable;
+        }
+
+        void applyTo(OverlayDictTrie overlay) {
+            if (enable) {
+                overlay.enableWord(word);
+            } else {
+                overlay.disableWord(word);
+            }
+        }
+    }
+
     /**
      * 检索匹配主词典
      * @return Hit 匹配结果描述
      */
     public Hit matchInMainDict(char[] charArray) {
-        return singleton._MainDict.match(charArray);
+        return singleton.current.matchInMainDict(charArray, 0, charArray.length);
     }
 
     /**
@@ -349,7 +648,7 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInMainDict(char[] charArray, int begin, int length) {
-        return singleton._MainDict.match(charArray, begin, length);
+        return singleton.current.matchInMainDict(charArray, begin, length);
     }
 
     /**
@@ -357,16 +656,53 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInQuantifierDict(char[] charArray, int begin, int length) {
-        return singleton._QuantifierDict.match(charArray, begin, length);
+        return singleton.current.matchInQuantifierDict(charArray, begin, length);
     }
 
     /**
-     * 从已匹配的Hit中直接取出DictSegment，继续向下匹配
+     * 从已匹配的Hit中直接取出匹配位置，继续向下匹配
      * @return Hit
      */
     public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
-        DictSegment ds = matchedHit.getMatchedDictSegment();
-        return ds.match(charArray, currentIndex, 1, matchedHit);
+        return matchedHit.getMatchedTrie().matchWithHit(charArray, currentIndex, matchedHit);
+    }
+
+    /**
+     * 从begin开始一次遍历主词典，找出所有以begin开头的词
+     * @param end 匹配区域结束位置（不含）
+     * @param lengths 按由短到长的顺序存放词的长度
+     * @param searchHit 复用的Hit，记录遍历停止的位置及该位置的匹配状态
+     * @return int 词的数目，最多lengths.length个
+     */
+    public int matchPrefixesInMainDict(char[] charArray, int begin, int end, int[] lengths, Hit searchHit) {
+        return singleton.current.matchPrefixesInMainDict(charArray, begin, end, lengths, searchHit);
+    }
+
+    /**
+     * 以主词典推进逐字匹配游标，不产生新的对象
+     * @param cursor 调用方持有的匹配游标
+     * @return int 以currentIndex结尾的词的数目，起始位置由cursor.getMatchBegin取得
+     */
+    public int matchInMainDict(MatchCursor cursor, char[] charArray, int currentIndex) {
+        return singleton.current.matchInMainDict(cursor, charArray, currentIndex);
+    }
+
+    /**
+     * 以量词词典推进逐字匹配游标，不产生新的对象
+     * @param cursor 调用方持有的匹配游标
+     * @return int 以currentIndex结尾的词的数目，起始位置由cursor.getMatchBegin取得
+     */
+    public int matchInQuantifierDict(MatchCursor cursor, char[] charArray, int currentIndex) {
+        return singleton.current.matchInQuantifierDict(cursor, charArray, currentIndex);
+    }
+
+    /**
+     * 将单遍扫描游标绑定到当前的主词典自动机
+     * 未启用单遍扫描，或覆盖层中有运行时新增、屏蔽的词（自动机不包含这些变化）时不绑定
+     * @return boolean 是否可以使用单遍扫描
+     */
+    public boolean bindMainDictScanCursor(ScanCursor cursor) {
+        return singleton.current.bindMainDictScanCursor(cursor);
     }
 
     /**
@@ -374,78 +710,640 @@ public class Dictionary {
      * @return boolean
      */
     public boolean isStopWord(char[] charArray, int begin, int length) {
-        return singleton._StopWords.match(charArray, begin, length).isMatch();
+        return singleton.current.isStopWord(charArray, begin, length);
     }
 
     /**
      * 加载主词典及扩展词典
+     * 主词典、每个扩展词典、远程词典和数据库分别在线程池中加载到单独的词典树，全部完成后合并、编译
+     * @param previous 重建前的主词典，其覆盖层中的词合并到新的冻结层，首次加载时为null
+     * @param excluded 覆盖层中不合并的词
+     * @param executor 词典加载线程池
+     * @param slowSources 是否加载远程词典和数据库
      */
-    private void loadMainDict() {
-        // 建立一个主词典实例
-        _MainDict = new DictSegment((char) 0);
+    private CompletableFuture<Void> loadMainDict(OverlayDictTrie previous, Set<String> excluded, Executor executor, boolean slowSources) {
+        List<CompletableFuture<DictSegment.Builder>> sources       = new ArrayList<CompletableFuture<DictSegment.Builder>>();
+        List<CompletableFuture<DictSegment.Builder>> remoteSources = new ArrayList<CompletableFuture<DictSegment.Builder>>();
+        // 预编译词典已包含主词典和扩展词典
+        if (artifact == null) {
+            // 读取主词典文件
+            Path file = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_MAIN);
+            sources.add(loadAsync(dict -> loadDictFile(dict, file, false, "Main Dict"), executor));
+            // 加载扩展词典
+            for (String extDictName : getExtDictionarys()) {
+                sources.add(loadAsync(dict -> loadExtDict(dict, extDictName), executor));
+            }
+        }
+        if (slowSources) {
+            // 加载远程自定义词库
+            for (String location : getRemoteExtDictionarys()) {
+                remoteSources.add(loadAsync(dict -> loadRemoteDict(dict, location), executor));
+            }
+            // 加载远程自定义数据库拓展词典到主词库表
+            sources.add(loadAsync(this::loadExtendDictFromMysql, executor));
+        }
 
-        // 读取主词典文件
-        Path file = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_MAIN);
-        loadDictFile(_MainDict, file, false, "Main Dict");
-        // 加载扩展词典
-        this.loadExtDict();
-        // 加载远程自定义词库
-        this.loadRemoteExtDict();
-        // 加载远程自定义数据库拓展词典到主词库表
-        this.loadExtendDictFromMysql();
+        List<CompletableFuture<DictSegment.Builder>> allSources = new ArrayList<CompletableFuture<DictSegment.Builder>>(sources);
+        allSources.addAll(remoteSources);
+        return mergeAsync(allSources, executor).thenAccept(mainDict -> {
+            if (slowSources) {
+                remoteOnlyWords = findRemoteOnlyWords(sources, previous, excluded);
+            }
+            // 合并上次加载之后新增、屏蔽的词
+            if (previous != null) {
+                previous.mergeInto(mainDict, excluded);
+            }
+
+            DictTrie frozen;
+            if (artifact == null) {
+                frozen = compileMainDict(mainDict);
+            } else if (mainDict.hasNextNode()) {
+                // 运行时加载的词单独编译，与预编译的主词典合并查询
+                frozen = new UnionDictTrie(artifact.getMainDict(), compileMainDict(mainDict));
+            } else {
+                frozen = artifact.getMainDict();
+            }
+            _MainDict = previous == null ? new OverlayDictTrie(frozen) : previous.rebase(frozen, excluded);
+            _MainAutomaton = buildMainAutomaton(frozen);
+        });
+    }
+
+    /**
+     * 找出只由远程扩展词典提供的词，远程词典已全部加载完成
+     * @param sources 本地词典和数据库的词典源
+     * @param previous 重建前的主词典，其覆盖层中合并的词不算只由远程词典提供
+     * @param excluded 覆盖层中不合并的词
+     */
+    private Set<String> findRemoteOnlyWords(List<CompletableFuture<DictSegment.Builder>> sources, OverlayDictTrie previous, Set<String> excluded) {
+        Set<String> words = new HashSet<String>();
+        for (Set<String> remote : remoteWords.values()) {
+            words.addAll(remote);
+        }
+        if (words.isEmpty()) {
+            return words;
+        }
+        DictSegment wanted = new DictSegment((char) 0);
+        for (String word : words) {
+            wanted.fillSegment(word.toCharArray());
+        }
+        DictFileReader.WordConsumer collector = (charArray, offset, length) -> {
+            if (wanted.match(charArray, offset, length).isMatch()) {
+                words.remove(new String(charArray, offset, length));
+            }
+        };
+        for (CompletableFuture<DictSegment.Builder> source : sources) {
+            source.join().forEach(collector);
+        }
+        words.removeIf(word -> (artifact != null && artifact.getMainDict().match(word.toCharArray(), 0, word.length(), null).isMatch())
+                || (previous != null && !excluded.contains(word) && previous.isAdded(word.toCharArray())));
+        return words;
+    }
+
+    /**
+     * 词典加载线程数，不超过处理器数目和MAX_LOADING_THREADS
+     */
+    private static int loadingThreads() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_LOADING_THREADS));
+    }
+
+    /**
+     * 词典加载线程池，线程数为loadingThreads
+     */
+    private static ExecutorService newLoadingExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(loadingThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "ik-dict-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 在线程池中收集一个词典源的全部词
+     */
+    private static CompletableFuture<DictSegment.Builder> loadAsync(Consumer<DictSegment.Builder> loader, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            DictSegment.Builder dict = new DictSegment.Builder();
+            loader.accept(dict);
+            return dict;
+        }, executor);
+    }
+
+    /**
+     * 全部词典源加载完成后，合并收集到的词，一次构造词典树
+     * 词数较多时在加载线程池中并行构造
+     */
+    private static CompletableFuture<DictSegment> mergeAsync(List<CompletableFuture<DictSegment.Builder>> sources, Executor executor) {
+        return CompletableFuture.allOf(sources.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            DictSegment.Builder merged = new DictSegment.Builder();
+            for (CompletableFuture<DictSegment.Builder> source : sources) {
+                merged.addAll(source.join());
+            }
+            return merged.build(executor, loadingThreads());
+        });
+    }
+
+    /**
+     * 等待加载完成，加载中抛出的运行时异常原样抛出
+     */
+    private static void await(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 以内存映射方式加载预编译词典ik.ikd
+     * 文件不存在、比词典源文件旧、扩展词典配置已改变或校验失败时返回null，改为解析文本词典
+     */
+    private DictArtifact loadArtifact() {
+        Path file = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_COMPILED);
+        if (isFstEngine() || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            DictArtifact artifact = DictArtifact.map(file);
+            if (!artifact.getSources().equals(getCompiledSources())) {
+                logger.warn("[Dict Loading] {} was compiled with different ext dicts, ignored", file);
+                return null;
+            }
+            List<String> sources = new ArrayList<String>();
+            sources.add(PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_MAIN).toString());
+            sources.add(PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_QUANTIFIER).toString());
+            sources.add(PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_STOP).toString());
+            sources.addAll(getExtDictionarys());
+            sources.addAll(getExtStopWordDictionarys());
+            for (String source : sources) {
+                Path text = PathUtils.get(source);
+                if (Files.exists(text) && Files.getLastModifiedTime(text).compareTo(Files.getLastModifiedTime(file)) > 0) {
+                    logger.warn("[Dict Loading] {} is older than {}, ignored", file, text);
+                    return null;
+                }
+            }
+            logger.info("[Dict Loading] compiled dict mapped from {}, main dict states: {}, capacity: {}", file,
+                    artifact.getMainDict().size(), artifact.getMainDict().capacity());
+            return artifact;
+        } catch (IOException e) {
+            logger.error("[Dict Loading] " + file + " loading failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * 合并重建请求的窗口（毫秒），未配置或配置不正确时为DEFAULT_RELOAD_WINDOW_MILLIS
+     */
+    private long getReloadWindowMillis() {
+        String millis = getProperty(RELOAD_WINDOW_MILLIS);
+        if (millis == null || millis.trim().isEmpty()) {
+            return DEFAULT_RELOAD_WINDOW_MILLIS;
+        }
+        try {
+            return Math.max(0, Long.parseLong(millis.trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("[Dict Reloading] invalid {}: {}", RELOAD_WINDOW_MILLIS, millis);
+            return DEFAULT_RELOAD_WINDOW_MILLIS;
+        }
+    }
+
+    /**
+     * 请求重建全部词典，窗口期内的多个请求只重建一次
+     * @param source 请求来源，用于日志
+     */
+    void requestReload(String source) {
+        reloadScheduler.request(source);
+    }
+
+    /**
+     * 预热的时间预算（毫秒），未配置或配置不正确时为0，不预热
+     */
+    public long getWarmupMillis() {
+        String millis = getProperty(WARMUP_MILLIS);
+        if (millis == null || millis.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(millis.trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("[Warm Up] invalid {}: {}", WARMUP_MILLIS, millis);
+            return 0;
+        }
+    }
+
+    /**
+     * 预热语料，配置了warmup_corpus时读取该文件，否则读取配置目录下的warmup.txt
+     * @return String 文件不存在或读取失败时为null
+     */
+    public String getWarmupCorpus() {
+        String configured = getProperty(WARMUP_CORPUS);
+        Path   file       = configured == null || configured.trim().isEmpty()
+                ? PathUtils.get(getDictRoot(), Dictionary.PATH_WARMUP_CORPUS)
+                : PathUtils.get(getDictRoot(), configured.trim());
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.error("[Warm Up] " + file + " loading failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * 是否配置了远程词典或数据库
+     */
+    private boolean hasSlowSources() {
+        return !getRemoteExtDictionarys().isEmpty() || !getRemoteExtStopWordDictionarys().isEmpty()
+                || Files.isRegularFile(PathUtils.get(getDictRoot(), Dictionary.PATH_JDBC_RELOAD));
+    }
+
+    /**
+     * 合并后词典的快照文件，未启用快照或不在Elasticsearch中运行时为null
+     */
+    private Path getSnapshotFile() {
+        String enabled = getProperty(DICT_SNAPSHOT);
+        if (configuration == null || (enabled != null && "false".equalsIgnoreCase(enabled.trim()))) {
+            return null;
+        }
+        Path[] dataFiles = configuration.getEnvironment().dataFiles();
+        if (dataFiles == null || dataFiles.length == 0) {
+            return null;
+        }
+        return dataFiles[0].resolve(PATH_SNAPSHOT_DIR).resolve(PATH_SNAPSHOT);
+    }
+
+    /**
+     * 加载上次写入的快照，快照写入后配置或本地词典有变化时不使用
+     * @return DictArtifact 不存在或不可用时为null
+     */
+    private DictArtifact loadSnapshot() {
+        Path file = getSnapshotFile();
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            DictArtifact snapshot = DictArtifact.map(file);
+            List<String> sources = new ArrayList<String>();
+            for (String source : snapshot.getSources()) {
+                int tab = source.indexOf('\t');
+                sources.add(tab < 0 ? source : source.substring(0, tab));
+            }
+            Collections.sort(sources);
+            if (!sources.equals(getSnapshotSources(false))) {
+                logger.warn("[Dict Loading] {} was written with different dict config, ignored", file);
+                return null;
+            }
+            // 本地词典的修改时间与写入快照时记录的不同（包括改回更早的版本）时不使用
+            List<String> mtimes = getLocalDictMtimes();
+            for (String source : snapshot.getSources()) {
+                if (source.startsWith(SNAPSHOT_MTIME + "=") && !mtimes.contains(source)) {
+                    logger.warn("[Dict Loading] {} was written before {} changed, ignored", file, source.substring(SNAPSHOT_MTIME.length() + 1, source.indexOf('\t')));
+                    return null;
+                }
+            }
+            // 快照中记录的远程词典版本
+            for (String source : snapshot.getSources()) {
+                int tab = source.indexOf('\t');
+                if (tab >= 0 && !source.startsWith(SNAPSHOT_MTIME + "=")) {
+                    remoteVersions.put(source.substring(source.indexOf('=') + 1, tab), source.substring(tab + 1));
+                }
+            }
+            logger.info("[Dict Loading] dict snapshot mapped from {}, main dict states: {}", file, snapshot.getMainDict().size());
+            return snapshot;
+        } catch (IOException e) {
+            logger.error("[Dict Loading] " + file + " loading failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * 预编译词典及参与重建的本地词典文件
+     */
+    private List<String> getLocalDictFiles() {
+        List<String> locals = new ArrayList<String>();
+        locals.add(PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_COMPILED).toString());
+        locals.add(PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_MAIN).toString());
+        locals.add(PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_QUANTIFIER).toString());
+        locals.add(PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_STOP).toString());
+        locals.addAll(getExtDictionarys());
+        locals.addAll(getExtStopWordDictionarys());
+        return locals;
+    }
+
+    /**
+     * 本地词典文件的修改时间，每项为"mtime=相对配置目录的路径\t毫秒数"，文件不存在时为-1
+     */
+    private List<String> getLocalDictMtimes() throws IOException {
+        List<String> mtimes = new ArrayList<String>();
+        for (String local : getLocalDictFiles()) {
+            Path text = PathUtils.get(local);
+            long millis = Files.exists(text) ? Files.getLastModifiedTime(text).toMillis() : -1;
+            mtimes.add(SNAPSHOT_MTIME + "=" + getRelativePath(local) + "\t" + millis);
+        }
+        return mtimes;
+    }
+
+    /**
+     * 以快照作为全部已加载的词典
+     */
+    private void applySnapshot(DictArtifact snapshot) {
+        DictTrie frozen;
+        if (isFstEngine()) {
+            frozen          = compileMainDict(snapshot.getMainDict().toSegment());
+            _QuantifierDict = compileDict(snapshot.getQuantifierDict().toSegment());
+            _StopWords      = compileDict(snapshot.getStopWords().toSegment());
+        } else {
+            frozen          = snapshot.getMainDict();
+            _QuantifierDict = snapshot.getQuantifierDict();
+            _StopWords      = snapshot.getStopWords();
+        }
+        _MainDict      = new OverlayDictTrie(frozen);
+        _MainAutomaton = buildMainAutomaton(frozen);
+    }
+
+    /**
+     * 将当前加载的主词典、量词词典和停止词词典写入快照
+     * 运行时通过addWords加入、尚未重建的词不写入，重建时已合并的会随冻结层写入
+     * 内容与已有快照相同时不重写文件
+     */
+    private void writeSnapshot() {
+        Path file = getSnapshotFile();
+        if (file == null) {
+            return;
+        }
+        SpecialPermission.check();
+        AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
+            try {
+                Files.createDirectories(file.getParent());
+                DictionarySnapshot dict    = current;
+                boolean            written = DictArtifact.write(file, toDoubleArray(dict.getMainDict().getFrozen()),
+                        toDoubleArray(dict.getQuantifierDict()), toDoubleArray(dict.getStopWords()), getSnapshotSources(true));
+                if (written) {
+                    logger.info("[Dict Loading] dict snapshot written to {}", file);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("[Dict Loading] " + file + " writing failed", e);
+            }
+            return null;
+        });
+    }
+
+    private static DoubleArrayTrie toDoubleArray(DictTrie dict) {
+        return dict instanceof DoubleArrayTrie ? (DoubleArrayTrie) dict : DoubleArrayTrie.build(dict.toSegment());
+    }
+
+    /**
+     * 快照对应的词典配置，每项为"配置项=路径或地址"，已排序
+     * 本地词典文件各有一项mtime，写入时在制表符后附加修改时间，内容相同的快照因此不会被误认为是旧的
+     * @param withVersions 远程词典项是否在制表符后附加版本，本地词典项是否附加修改时间
+     */
+    private List<String> getSnapshotSources(boolean withVersions) throws IOException {
+        List<String> sources = getCompiledSources();
+        for (String location : getRemoteExtDictionarys()) {
+            sources.add(snapshotSource(REMOTE_EXT_DICT, location, withVersions));
+        }
+        for (String location : getRemoteExtStopWordDictionarys()) {
+            sources.add(snapshotSource(REMOTE_EXT_STOP, location, withVersions));
+        }
+        for (String mtime : getLocalDictMtimes()) {
+            sources.add(withVersions ? mtime : mtime.substring(0, mtime.indexOf('\t')));
+        }
+        Collections.sort(sources);
+        return sources;
+    }
+
+    private String snapshotSource(String key, String location, boolean withVersions) {
+        String version = remoteVersions.get(location);
+        return withVersions && version != null ? key + "=" + location + "\t" + version : key + "=" + location;
+    }
+
+    private static String joinVersion(String lastModified, String eTag) {
+        return (lastModified == null ? "" : lastModified) + "\t" + (eTag == null ? "" : eTag);
+    }
+
+    /**
+     * 远程词典监控，以已加载内容的版本为初始版本
+     */
+    private Monitor newMonitor(String location) {
+        String version = remoteVersions.get(location);
+        if (version == null) {
+            return new Monitor(location);
+        }
+        int    tab          = version.indexOf('\t');
+        String lastModified = version.substring(0, tab);
+        String eTag         = version.substring(tab + 1);
+        return new Monitor(location, lastModified.isEmpty() ? null : lastModified, eTag.isEmpty() ? null : eTag);
+    }
+
+    /**
+     * 编译进预编译词典的扩展词典，每项为"配置项=相对配置目录的路径"
+     */
+    private List<String> getCompiledSources() {
+        List<String> sources = new ArrayList<String>();
+        for (String file : getExtDictionarys()) {
+            sources.add(EXT_DICT + "=" + getRelativePath(file));
+        }
+        for (String file : getExtStopWordDictionarys()) {
+            sources.add(EXT_STOP + "=" + getRelativePath(file));
+        }
+        Collections.sort(sources);
+        return sources;
+    }
+
+    private String getRelativePath(String file) {
+        Path root = conf_dir.toAbsolutePath().normalize();
+        Path path = PathUtils.get(file).toAbsolutePath().normalize();
+        if (!path.startsWith(root)) {
+            return path.toString();
+        }
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    /**
+     * 将主词典、扩展词典、量词词典、停止词词典编译为预编译词典文件
+     * 写入后重新映射文件，逐词校验编译结果
+     * @param file 预编译词典文件
+     */
+    void compile(Path file) throws IOException {
+        DictSegment.Builder mainWords = new DictSegment.Builder();
+        loadDictFile(mainWords, PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_MAIN), true, "Main Dict");
+        this.loadExtDict(mainWords);
+        DictSegment.Builder quantifierWords = new DictSegment.Builder();
+        loadDictFile(quantifierWords, PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_QUANTIFIER), true, "Quantifier");
+        DictSegment.Builder stopWordList = new DictSegment.Builder();
+        this.loadLocalStopWords(stopWordList);
+        DictSegment mainDict       = mainWords.build();
+        DictSegment quantifierDict = quantifierWords.build();
+        DictSegment stopWords      = stopWordList.build();
+
+        DictArtifact.write(file, DoubleArrayTrie.build(mainDict), DoubleArrayTrie.build(quantifierDict),
+                DoubleArrayTrie.build(stopWords), getCompiledSources());
+
+        DictArtifact artifact = DictArtifact.map(file);
+        verifyCompiled(mainDict, artifact.getMainDict(), "Main Dict");
+        verifyCompiled(quantifierDict, artifact.getQuantifierDict(), "Quantifier");
+        verifyCompiled(stopWords, artifact.getStopWords(), "Stopwords");
+        logger.info("[Dict Compiling] {} written, main dict states: {}, capacity: {}", file,
+                artifact.getMainDict().size(), artifact.getMainDict().capacity());
+    }
+
+    /**
+     * 校验词典树中的每个词在编译结果中都成词，且编译结果中没有多余的词
+     */
+    private static void verifyCompiled(DictSegment source, DictTrie compiled, String name) throws IOException {
+        List<char[]> words = source.getWords();
+        for (char[] word : words) {
+            if (!compiled.match(word, 0, word.length, null).isMatch()) {
+                throw new IOException("ik-analyzer: " + name + " compiled incorrectly, missing word " + new String(word));
+            }
+        }
+        int count = compiled.toSegment().getWords().size();
+        if (count != words.size()) {
+            throw new IOException("ik-analyzer: " + name + " compiled incorrectly, " + count + " words, expected " + words.size());
+        }
     }
 
     /**
      * 加载用户配置的扩展词典到主词库表
      */
-    private void loadExtDict() {
+    private void loadExtDict(DictSegment.Builder mainDict) {
         // 加载扩展词典配置
         List<String> extDictFiles = getExtDictionarys();
         if (extDictFiles != null) {
             for (String extDictName : extDictFiles) {
-                // 读取扩展词典文件
-                logger.info("[Dict Loading] " + extDictName);
-                Path file = PathUtils.get(extDictName);
-                loadDictFile(_MainDict, file, false, "Extra Dict");
+                loadExtDict(mainDict, extDictName);
             }
         }
     }
 
     /**
-     * 加载远程扩展词典到主词库表
+     * 加载一个扩展词典文件
      */
-    private void loadRemoteExtDict() {
-        List<String> remoteExtDictFiles = getRemoteExtDictionarys();
-        for (String location : remoteExtDictFiles) {
-            logger.info("[Dict Loading] " + location);
-            List<String> lists = getRemoteWords(location);
-            // 如果找不到扩展的字典，则忽略
-            if (lists == null) {
-                logger.error("[Dict Loading] " + location + " load failed");
-                continue;
+    private void loadExtDict(DictSegment.Builder mainDict, String extDictName) {
+        // 读取扩展词典文件
+        logger.info("[Dict Loading] " + extDictName);
+        Path file = PathUtils.get(extDictName);
+        loadDictFile(mainDict, file, false, "Extra Dict");
+    }
+
+    /**
+     * 加载一个远程扩展词典或远程停止词词典
+     */
+    private void loadRemoteDict(DictSegment.Builder dict, String location) {
+        logger.info("[Dict Loading] " + location);
+        String[]     version = new String[2];
+        List<String> lists   = getRemoteWords(location, version);
+        if (version[0] != null || version[1] != null) {
+            remoteVersions.put(location, joinVersion(version[0], version[1]));
+        }
+        // 如果找不到扩展的字典，则忽略
+        if (lists == null) {
+            logger.error("[Dict Loading] " + location + " load failed");
+            return;
+        }
+        Set<String> words = toRemoteWords(lists);
+        for (String theWord : words) {
+            // 加载远程词典数据到主内存中
+            logger.info(theWord);
+            dict.add(theWord.toCharArray());
+        }
+        remoteWords.put(location, words);
+    }
+
+    /**
+     * 远程词典中的词，去除首尾空白并转为小写，空行忽略
+     */
+    private static Set<String> toRemoteWords(List<String> lists) {
+        Set<String> words = new HashSet<String>();
+        for (String theWord : lists) {
+            if (theWord != null && !"".equals(theWord.trim())) {
+                words.add(theWord.trim().toLowerCase());
             }
-            for (String theWord : lists) {
-                if (theWord != null && !"".equals(theWord.trim())) {
-                    // 加载扩展词典数据到主内存词典中
-                    logger.info(theWord);
-                    _MainDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-                }
+        }
+        return words;
+    }
+
+    /**
+     * 远程扩展词典有更新时重新下载，只把与上次下载相比新增、删除的词通过addWords、disableWords应用到主词典
+     * 删除的词仍在其他远程词典、本地词典或数据库中时不屏蔽；按差异应用的词在下次重建时由词典源重新加载
+     * 远程停止词词典没有覆盖层，没有上次下载的词（如由快照启动）时无法比较，都请求重建全部词典
+     * @param location 远程词典地址
+     * @return boolean 已应用或已请求重建时返回true，下载失败时返回false，由监控下次继续尝试
+     */
+    boolean reLoadRemoteDict(String location) {
+        Set<String> previous = remoteWords.get(location);
+        if (previous == null || !getRemoteExtDictionarys().contains(location)) {
+            requestReload(location);
+            return true;
+        }
+        logger.info("start to reload remote ik dict {}", location);
+        String[]     version = new String[2];
+        List<String> lists   = getRemoteWords(location, version);
+        if (lists == null) {
+            logger.error("[Dict Loading] " + location + " load failed");
+            return false;
+        }
+        Set<String>  words   = toRemoteWords(lists);
+        List<String> added   = new ArrayList<String>();
+        Set<String>  removed = new HashSet<String>();
+        for (String word : words) {
+            if (!previous.contains(word)) {
+                added.add(word);
+            }
+        }
+        for (String word : previous) {
+            if (!words.contains(word) && !inOtherRemoteDict(location, word) && !inOtherSources(word)) {
+                removed.add(word);
             }
         }
+        addWords(added);
+        disableWords(removed);
+        remoteDeltaWords.addAll(added);
+        remoteDeltaWords.addAll(removed);
+        remoteWords.put(location, words);
+        if (version[0] != null || version[1] != null) {
+            remoteVersions.put(location, joinVersion(version[0], version[1]));
+        }
+        logger.info("reload remote ik dict {} finished, {} words added, {} words removed.", location, added.size(), removed.size());
+        return true;
+    }
 
+    /**
+     * 其他远程扩展词典中是否有这个词
+     */
+    private boolean inOtherRemoteDict(String location, String word) {
+        for (String other : getRemoteExtDictionarys()) {
+            Set<String> words = remoteWords.get(other);
+            if (!other.equals(location) && words != null && words.contains(word)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private static List<String> getRemoteWords(String location) {
+    /**
+     * 冻结层中是否有来自本地词典、数据库或覆盖层合并的这个词，直接查询当前的冻结层
+     */
+    private boolean inOtherSources(String word) {
+        DictTrie frozen = current.getMainDict().getFrozen();
+        return frozen.match(word.toCharArray(), 0, word.length(), null).isMatch() && !remoteOnlyWords.contains(word);
+    }
+
+    private static List<String> getRemoteWords(String location, String[] version) {
         SpecialPermission.check();
         return AccessController.doPrivileged((PrivilegedAction<List<String>>) () -> {
-            return getRemoteWordsUnprivileged(location);
+            return getRemoteWordsUnprivileged(location, version);
         });
     }
 
     /**
      * 从远程服务器上下载自定义词条
+     * @param version 返回响应中的Last-Modified和ETag
+     * @return List<String> 下载失败时为null
      */
-    private static List<String> getRemoteWordsUnprivileged(String location) {
+    private static List<String> getRemoteWordsUnprivileged(String location, String[] version) {
 
         List<String> buffer = new ArrayList<String>();
         RequestConfig rc = RequestConfig.custom().setConnectionRequestTimeout(10 * 1000).setConnectTimeout(10 * 1000)
@@ -458,6 +1356,10 @@ public class Dictionary {
         try {
             response = httpclient.execute(get);
             if (response.getStatusLine().getStatusCode() == 200) {
+                Header lastModified = response.getLastHeader("Last-Modified");
+                Header eTag         = response.getLastHeader("ETag");
+                version[0] = lastModified == null ? null : lastModified.getValue();
+                version[1] = eTag == null ? null : eTag.getValue();
 
                 String charset = "UTF-8";
                 // 获取编码，默认为utf-8
@@ -482,99 +1384,161 @@ public class Dictionary {
                         return buffer;
                     }
                 }
+            } else {
+                // 下载失败，与内容为空区分
+                buffer = null;
             }
             response.close();
         } catch (IllegalStateException | IOException e) {
             logger.error("getRemoteWords {} error", e, location);
+            buffer = null;
         }
         return buffer;
     }
 
     /**
      * 加载用户扩展的停止词词典
+     * @param executor 词典加载线程池
+     * @param slowSources 是否加载远程词典和数据库
      */
-    private void loadStopWordDict() {
-        // 建立主词典实例
-        _StopWords = new DictSegment((char) 0);
+    private CompletableFuture<Void> loadStopWordDict(Executor executor, boolean slowSources) {
+        List<CompletableFuture<DictSegment.Builder>> sources = new ArrayList<CompletableFuture<DictSegment.Builder>>();
+        // 预编译词典已包含停止词词典和扩展停止词词典
+        if (artifact == null) {
+            // 读取主词典文件
+            Path file = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_STOP);
+            sources.add(loadAsync(dict -> loadDictFile(dict, file, false, "Main Stopwords"), executor));
+            // 加载扩展停止词典
+            for (String extStopWordDictName : getExtStopWordDictionarys()) {
+                sources.add(loadAsync(dict -> loadExtStopWordDict(dict, extStopWordDictName), executor));
+            }
+        }
+        if (slowSources) {
+            // 加载远程停用词典
+            for (String location : getRemoteExtStopWordDictionarys()) {
+                sources.add(loadAsync(dict -> loadRemoteDict(dict, location), executor));
+            }
+            // 从 MySQL 加载停用词
+            sources.add(loadAsync(this::loadStopDictFromMysql, executor));
+        }
 
+        return mergeAsync(sources, executor).thenAccept(stopWords -> {
+            if (artifact == null) {
+                _StopWords = compileDict(stopWords);
+            } else if (stopWords.hasNextNode()) {
+                _StopWords = new UnionDictTrie(artifact.getStopWords(), compileDict(stopWords));
+            } else {
+                _StopWords = artifact.getStopWords();
+            }
+        });
+    }
+
+    /**
+     * 加载本地停止词词典及扩展停止词词典
+     */
+    private void loadLocalStopWords(DictSegment.Builder stopWords) {
         // 读取主词典文件
         Path file = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_STOP);
-        loadDictFile(_StopWords, file, false, "Main Stopwords");
+        loadDictFile(stopWords, file, false, "Main Stopwords");
 
         // 加载扩展停止词典
         List<String> extStopWordDictFiles = getExtStopWordDictionarys();
         if (extStopWordDictFiles != null) {
             for (String extStopWordDictName : extStopWordDictFiles) {
-                logger.info("[Dict Loading] " + extStopWordDictName);
-
-                // 读取扩展词典文件
-                file = PathUtils.get(extStopWordDictName);
-                loadDictFile(_StopWords, file, false, "Extra Stopwords");
+                loadExtStopWordDict(stopWords, extStopWordDictName);
             }
         }
+    }
 
-        // 加载远程停用词典
-        List<String> remoteExtStopWordDictFiles = getRemoteExtStopWordDictionarys();
-        for (String location : remoteExtStopWordDictFiles) {
-            logger.info("[Dict Loading] " + location);
-            List<String> lists = getRemoteWords(location);
-            // 如果找不到扩展的字典，则忽略
-            if (lists == null) {
-                logger.error("[Dict Loading] " + location + " load failed");
-                continue;
-            }
-            for (String theWord : lists) {
-                if (theWord != null && !"".equals(theWord.trim())) {
-                    // 加载远程词典数据到主内存中
-                    logger.info(theWord);
-                    _StopWords.fillSegment(theWord.trim().toLowerCase().toCharArray());
-                }
-            }
-        }
+    /**
+     * 加载一个扩展停止词词典文件
+     */
+    private void loadExtStopWordDict(DictSegment.Builder stopWords, String extStopWordDictName) {
+        logger.info("[Dict Loading] " + extStopWordDictName);
 
-        // 从 MySQL 加载停用词
-        this.loadStopDictFromMysql();
+        // 读取扩展词典文件
+        Path file = PathUtils.get(extStopWordDictName);
+        loadDictFile(stopWords, file, false, "Extra Stopwords");
     }
 
     /**
      * 加载量词词典
      */
-    private void loadQuantifierDict() {
-        // 建立一个量词典实例
-        _QuantifierDict = new DictSegment((char) 0);
+    private CompletableFuture<Void> loadQuantifierDict(Executor executor) {
+        if (artifact != null) {
+            _QuantifierDict = artifact.getQuantifierDict();
+            return CompletableFuture.completedFuture(null);
+        }
         // 读取量词词典文件
         Path file = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_QUANTIFIER);
-        loadDictFile(_QuantifierDict, file, false, "Quantifier");
+        return loadAsync(dict -> loadDictFile(dict, file, false, "Quantifier"), executor)
+                .thenAccept(quantifierDict -> _QuantifierDict = compileDict(quantifierDict.build()));
     }
 
-    private void loadSurnameDict() {
-        DictSegment _SurnameDict = new DictSegment((char) 0);
-        Path        file         = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_SURNAME);
-        loadDictFile(_SurnameDict, file, true, "Surname");
-    }
-
-    private void loadSuffixDict() {
-        DictSegment _SuffixDict = new DictSegment((char) 0);
-        Path        file        = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_SUFFIX);
-        loadDictFile(_SuffixDict, file, true, "Suffix");
-    }
-
-    private void loadPrepDict() {
-        DictSegment _PrepDict = new DictSegment((char) 0);
-        Path        file      = PathUtils.get(getDictRoot(), Dictionary.PATH_DIC_PREP);
-        loadDictFile(_PrepDict, file, true, "Preposition");
+    /**
+     * 以插件的权限重建词典，由ReloadScheduler执行
+     */
+    private void reLoadMainDictPrivileged() {
+        SpecialPermission.check();
+        AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
+            reLoadMainDict();
+            return null;
+        });
     }
 
+    /**
+     * 重建主词典和停止词词典，只由ReloadScheduler在词典线程中调用，不会并发执行
+     */
     void reLoadMainDict() {
         logger.info("start to reload ik dict.");
+        // 加载前检测，加载期间的变化由下次检测发现
+        String probed = probeJdbcQuietly();
         // 新开一个实例加载词典，减少加载过程对当前词典使用的影响
         Dictionary tmpDict = new Dictionary(configuration);
         tmpDict.configuration = getSingleton().configuration;
-        tmpDict.loadMainDict();
-        tmpDict.loadStopWordDict();
-        _MainDict  = tmpDict._MainDict;
-        _StopWords = tmpDict._StopWords;
-        logger.info("reload ik dict finished.");
+        tmpDict.artifact = tmpDict.loadArtifact();
+        // 按远程词典差异应用的词由远程词典重新加载
+        Set<String> deltaWords = new HashSet<String>(remoteDeltaWords);
+        DictionarySnapshot previous = current;
+        DictionarySnapshot reloaded;
+        // 合并覆盖层之前开始记录覆盖层的写入，合并之后的写入在发布前重放，不会丢失
+        synchronized (overlayWriteLock) {
+            overlayWrites = new ArrayList<OverlayWrite>();
+        }
+        try {
+            ExecutorService loader = newLoadingExecutor();
+            try {
+                await(CompletableFuture.allOf(tmpDict.loadMainDict(previous.getMainDict(), deltaWords, loader, true), tmpDict.loadStopWordDict(loader, true)));
+            } finally {
+                loader.shutdown();
+            }
+            // 量词词典不重新加载
+            tmpDict._QuantifierDict = previous.getQuantifierDict();
+            reloaded = tmpDict.takeLoaded(previous.getVersion() + 1);
+            // 替换前以新版本词典预热分词主流程
+            SegmenterWarmUp.run(configuration, reloaded);
+            // 一次替换全部词典，正在分词的词元流继续使用原来的版本
+            synchronized (overlayWriteLock) {
+                for (OverlayWrite write : overlayWrites) {
+                    write.applyTo(reloaded.getMainDict());
+                }
+                current = reloaded;
+            }
+        } finally {
+            synchronized (overlayWriteLock) {
+                overlayWrites = null;
+            }
+        }
+        remoteVersions.putAll(tmpDict.remoteVersions);
+        remoteWords.keySet().retainAll(tmpDict.remoteWords.keySet());
+        remoteWords.putAll(tmpDict.remoteWords);
+        remoteOnlyWords = tmpDict.remoteOnlyWords;
+        remoteDeltaWords.removeAll(deltaWords);
+        jdbcVersion = probed;
+        ready = true;
+        logStats();
+        writeSnapshot();
+        logger.info("reload ik dict finished, version {}.", reloaded.getVersion());
     }
 
     /**
@@ -586,12 +1550,12 @@ public class Dictionary {
         try {
             logger.info("----- loading jdbc-reload.properties START -----");
 
-            Path file = PathUtils.get(getDictRoot(), "jdbc-reload.properties");
-            props.load(Files.newInputStream(file.toFile().toPath()));
-            // props.load(new FileInputStream(file.toFile()));
+            readJdbcReloadProperties();
 
             for (Object key : props.keySet()) {
-                logger.info(key + "=" + props.getProperty(String.valueOf(key)));
+                // 密码不写入日志
+                String name = String.valueOf(key);
+                logger.info(name + "=" + ("jdbc.password".equals(name) ? "******" : props.getProperty(name)));
             }
             logger.info("----- loading jdbc-reload.properties END -----");
         } catch (Throwable e) {
@@ -601,6 +1565,16 @@ public class Dictionary {
         return this;
     }
 
+    /**
+     * 读取jdbc-reload.properties，不输出日志，DbMonitor定期检测时使用
+     */
+    private void readJdbcReloadProperties() throws IOException {
+        Path file = PathUtils.get(getDictRoot(), Dictionary.PATH_JDBC_RELOAD);
+        try (InputStream input = Files.newInputStream(file)) {
+            props.load(input);
+        }
+    }
+
     /**
      * 连接数据库
      * Author: Sweeper <wili.lixiang@gmail.com>
@@ -642,31 +1616,78 @@ public class Dictionary {
     }
 
     /**
-     * 查询总记录数
-     * Author: Sweeper <wili.lixiang@gmail.com>
-     * DateTime: 2024/2/23 14:31
-     * @return count总记录数
-     */
-    public int count(String sql) {
-        int               count = 0;//总记录数
-        Connection        conn  = null; // 调用连接数据库的方法
-        PreparedStatement pstmt = null;// PreparedStatement
-        ResultSet         rs    = null;// 结果集
+     * 数据库中的词典是否可能有变化，由DbMonitor定期检测
+     * 未配置变化检测查询时总是返回true，与每次都重建词典相同
+     * @throws SQLException 检测查询失败
+     */
+    boolean isJdbcChanged() throws SQLException {
+        String version = probeJdbc();
+        return version == null || !version.equals(jdbcVersion);
+    }
+
+    private String probeJdbcQuietly() {
         try {
-            conn  = this.connection(true);//获取数据库连接
-            pstmt = conn.prepareStatement(sql);//获取PreparedStatement
-            rs    = pstmt.executeQuery();//执行查询操作
-            if (rs.next()) {//光标向后移动，并判断是否有效
-                count = rs.getInt(1);//对总记录数赋值
-            }
-            rs.close();
-            pstmt.close();
-            conn.close();
-        } catch (Throwable e) {
-            logger.error("count error", e);
+            return probeJdbc();
+        } catch (SQLException | RuntimeException e) {
+            logger.error("----- jdbc change probe ERROR -----", e);
+            return null;
         }
+    }
 
-        return count;//返回总记录数
+    /**
+     * 执行jdbc-reload.properties中jdbc.reload.extend.probe.sql、jdbc.reload.stop.probe.sql配置的检测查询，
+     * 如select max(id), max(updated_at), count(*)，各查询结果第一行的全部列依次拼接为数据库词典的版本
+     * 本地词典文件的修改时间也计入版本，修改本地词典后仍会重建
+     * @return String 未配置数据库或检测查询时为null
+     * @throws SQLException 检测查询失败
+     */
+    private String probeJdbc() throws SQLException {
+        if (!Files.isRegularFile(PathUtils.get(getDictRoot(), Dictionary.PATH_JDBC_RELOAD))) {
+            return null;
+        }
+        try {
+            this.readJdbcReloadProperties();
+        } catch (IOException e) {
+            throw new SQLException("jdbc change probe: " + Dictionary.PATH_JDBC_RELOAD + " loading failed", e);
+        }
+        List<String> probes = new ArrayList<String>(2);
+        for (String key : new String[] {"jdbc.reload.extend.probe.sql", "jdbc.reload.stop.probe.sql"}) {
+            String sql = props.getProperty(key);
+            if (sql != null && !sql.trim().isEmpty()) {
+                probes.add(sql.trim());
+            }
+        }
+        if (probes.isEmpty()) {
+            return null;
+        }
+        StringBuilder version = new StringBuilder();
+        try (Connection conn = this.connection(false)) {
+            if (conn == null) {
+                throw new SQLException("jdbc change probe: database connection failed");
+            }
+            for (String sql : probes) {
+                try (Statement statement = conn.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+                    if (rs.next()) {
+                        for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                            version.append(rs.getString(i)).append('\t');
+                        }
+                    }
+                }
+                version.append('\n');
+            }
+        }
+        try {
+            for (String local : getLocalDictFiles()) {
+                Path file = PathUtils.get(local);
+                if (Files.exists(file)) {
+                    version.append(local).append('\t').append(Files.getLastModifiedTime(file).toMillis()).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            // 无法取得修改时间时视为有变化
+            return null;
+        }
+        return version.toString();
     }
 
     /**
@@ -674,174 +1695,134 @@ public class Dictionary {
      * Author: Sweeper <wili.lixiang@gmail.com>
      * DateTime: 2024/2/23 14:08
      */
-    public void loadExtendDictFromMysql() {
+    public void loadExtendDictFromMysql(DictSegment.Builder mainDict) {
         logger.info("============================ loadExtendDictFromMysql START ============================");
+        loadWordsFromMysql(mainDict, "extend", "[Extend Dict Loading] ");
+        logger.info("============================ loadExtendDictFromMysql FINISH ============================");
+    }
 
-        Connection connection = null;
-        Statement  statement  = null;
-        ResultSet  resultSet  = null;
-        String     extendSql;
-        String     extendCountSql;
-        String     extendLimitSql;
-        int        extendCount;
-        try {
-            connection     = this.connection(true);
-            extendSql      = props.getProperty("jdbc.reload.extend.sql");
-            extendCountSql = props.getProperty("jdbc.reload.extend.count.sql");
-            extendLimitSql = props.getProperty("jdbc.reload.extend.limit.sql");
-            statement      = connection.createStatement();
-            // resultSet      = statement.executeQuery(extendSql);
-            extendCount = this.count(extendCountSql);
-
-            logger.info("hot dict executeQuery {}, extendCount({}[{}])", extendSql, extendCountSql, extendCount);
-
-            // while (resultSet.next()) {
-            //     // 加载扩展词典数据到主内存词典中
-            //     String theWord = resultSet.getString("word");
-            //     logger.info(theWord);
-            //     _MainDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-            // }
-
-            int               page  = 1;
-            int               limit;
-            int               size  = Integer.parseInt(props.get("jdbc.page.size").toString());
-            PreparedStatement pstmt = connection.prepareStatement(extendLimitSql);// 获取PreparedStatement
-            while (true) {
-                limit = (page - 1) * size;
-                pstmt.setInt(1, limit);// 对SQL语句第一个参数赋值
-                pstmt.setInt(2, size);// 对SQL语句第二个参数赋值
-                resultSet = pstmt.executeQuery();// 执行查询操作
+    /**
+     * 加载自定义数据库拓展停止词词典到主词库表
+     * Author: Sweeper <wili.lixiang@gmail.com>
+     * DateTime: 2024/2/23 14:09
+     */
+    public void loadStopDictFromMysql(DictSegment.Builder stopWords) {
+        logger.info("============================ loadStopDictFromMysql START ============================");
+        loadWordsFromMysql(stopWords, "stop", "[Stop Dict Loading] ");
+        logger.info("============================ loadStopDictFromMysql FINISH ============================");
+    }
 
-                logger.info("===== page sql: " + pstmt + " =====");
+    /**
+     * 从数据库加载一张词表
+     * 配置了jdbc.reload.{table}.keyset.sql时按id键集分页，每页从上一页最后的id继续，不随页数增加扫描的行数；
+     * 否则配置了jdbc.fetch.size时以jdbc.reload.{table}.sql一次查询，按fetch size流式读取；
+     * 都未配置时仍以jdbc.reload.{table}.limit.sql按偏移分页
+     * @param table extend或stop
+     * @param logPrefix 日志前缀
+     */
+    private void loadWordsFromMysql(DictSegment.Builder dict, String table, String logPrefix) {
+        try (Connection connection = this.connection(true)) {
+            if (connection == null) {
+                logger.error(logPrefix + "database connection failed");
+                return;
+            }
+            String keysetSql = props.getProperty("jdbc.reload." + table + ".keyset.sql");
+            String fetchSize = props.getProperty("jdbc.fetch.size");
+            int    count;
+            if (keysetSql != null && !keysetSql.trim().isEmpty()) {
+                count = loadKeysetPages(connection, keysetSql.trim(), dict);
+            } else if (fetchSize != null && !fetchSize.trim().isEmpty()) {
+                count = loadStreaming(connection, props.getProperty("jdbc.reload." + table + ".sql"), Integer.parseInt(fetchSize.trim()), dict);
+            } else {
+                count = loadOffsetPages(connection, props.getProperty("jdbc.reload." + table + ".limit.sql"), dict);
+            }
+            logger.info(logPrefix + "{} words loaded from database", count);
+        } catch (Exception e) {
+            logger.error(logPrefix + e);
+        }
+    }
 
-                if (!resultSet.isBeforeFirst()) {
-                    logger.info("===== 暂无拓展词典数据 =====");
-                    break;
-                }
-                page++;
+    /**
+     * 键集分页：第一个参数为上一页最后的id（首页为Long.MAX_VALUE），第二个参数为每页行数，结果须包含id和word列
+     * 如 select id, word from t where id < ? order by id desc limit ?
+     */
+    private int loadKeysetPages(Connection connection, String sql, DictSegment.Builder dict) throws SQLException {
+        int  size   = getPageSize();
+        long lastId = Long.MAX_VALUE;
+        int  count  = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            while (true) {
+                pstmt.setLong(1, lastId);
+                pstmt.setInt(2, size);
                 int rowCount = 0;
-                while (resultSet.next()) {
-                    // 加载扩展词典数据到主内存词典中
-                    String theWord = resultSet.getString("word");
-                    logger.info(theWord);
-                    _MainDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-                    rowCount++;
+                try (ResultSet resultSet = pstmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        lastId = resultSet.getLong("id");
+                        addDbWord(dict, resultSet.getString("word"));
+                        rowCount++;
+                    }
                 }
+                count += rowCount;
                 if (rowCount < size) {
-                    logger.info("===== 暂无拓展词典数据 =====");
-                    break;
+                    return count;
                 }
             }
+        }
+    }
 
-            // 加载时间
-            Thread.sleep(Integer.parseInt(String.valueOf(props.get("jdbc.reload.interval"))));
-        } catch (Exception e) {
-            logger.error("[Extend Dict Loading] " + e);
-        } finally {
-            if (resultSet != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    logger.error("[Extend Dict Loading] " + e);
-                }
-            }
-            if (connection != null) {
-                try {
-                    connection.close();
-                } catch (SQLException e) {
-                    logger.error("[Extend Dict Loading] " + e);
+    /**
+     * 一次查询全部词，按fetch size流式读取
+     * MySQL Connector/J需在jdbc.url中加入useCursorFetch=true，fetch size才生效
+     */
+    private int loadStreaming(Connection connection, String sql, int fetchSize, DictSegment.Builder dict) throws SQLException {
+        int count = 0;
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                while (resultSet.next()) {
+                    addDbWord(dict, resultSet.getString("word"));
+                    count++;
                 }
             }
-
-            logger.info("============================ loadExtendDictFromMysql FINISH ============================");
         }
+        return count;
     }
 
     /**
-     * 加载自定义数据库拓展停止词词典到主词库表
-     * Author: Sweeper <wili.lixiang@gmail.com>
-     * DateTime: 2024/2/23 14:09
+     * 偏移分页：第一个参数为偏移，第二个参数为每页行数
      */
-    public void loadStopDictFromMysql() {
-        logger.info("============================ loadStopDictFromMysql START ============================");
-        // 建立主词典实例
-        _StopWords = new DictSegment((char) 0);
-        Connection connection = null;
-        Statement  statement  = null;
-        ResultSet  resultSet  = null;
-        String     stopSql;
-        String     stopCountSql;
-        String     stopLimitSql;
-        int        stopCount;
-        try {
-            connection   = this.connection(true);
-            stopSql      = props.getProperty("jdbc.reload.stop.sql");
-            stopCountSql = props.getProperty("jdbc.reload.stop.count.sql");
-            stopLimitSql = props.getProperty("jdbc.reload.stop.limit.sql");
-            statement    = connection.createStatement();
-            // resultSet    = statement.executeQuery(stopSql);
-            stopCount = this.count(stopCountSql);
-
-            logger.info("stop dict executeQuery {}, stopCount({}[{}])", stopSql, stopCountSql, stopCount);
-
-            // while (resultSet.next()) {
-            //     // 加载扩展词典数据到主内存词典中
-            //     String theWord = resultSet.getString("word");
-            //     logger.info(theWord);
-            //     _StopWords.fillSegment(theWord.trim().toLowerCase().toCharArray());
-            // }
-
-            int               page  = 1;
-            int               limit;
-            int               size  = Integer.parseInt(props.get("jdbc.page.size").toString());
-            PreparedStatement pstmt = connection.prepareStatement(stopLimitSql);// 获取PreparedStatement
+    private int loadOffsetPages(Connection connection, String sql, DictSegment.Builder dict) throws SQLException {
+        int size  = getPageSize();
+        int count = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             while (true) {
-                limit = (page - 1) * size;
-                pstmt.setInt(1, limit);// 对SQL语句第一个参数赋值
+                pstmt.setInt(1, count);// 对SQL语句第一个参数赋值
                 pstmt.setInt(2, size);// 对SQL语句第二个参数赋值
-                resultSet = pstmt.executeQuery();// 执行查询操作
-
-                logger.info("===== page sql: " + pstmt + " =====");
-
-                if (!resultSet.isBeforeFirst()) {
-                    logger.info("===== 暂无拓展停止词词典数据 =====");
-                    break;
-                }
-                page++;
                 int rowCount = 0;
-                while (resultSet.next()) {
-                    // 加载扩展词典数据到主内存词典中
-                    String theWord = resultSet.getString("word");
-                    logger.info(theWord);
-                    _StopWords.fillSegment(theWord.trim().toLowerCase().toCharArray());
-                    rowCount++;
+                try (ResultSet resultSet = pstmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        addDbWord(dict, resultSet.getString("word"));
+                        rowCount++;
+                    }
                 }
+                count += rowCount;
                 if (rowCount < size) {
-                    logger.info("===== 暂无拓展停止词词典数据 =====");
-                    break;
+                    return count;
                 }
             }
+        }
+    }
 
-            // 加载时间
-            Thread.sleep(Integer.parseInt(String.valueOf(props.get("jdbc.reload.interval"))));
-        } catch (Exception e) {
-            logger.error("[Stop Dict Loading] " + e);
-        } finally {
-            if (resultSet != null) {
-                try {
-                    statement.close();
-                } catch (SQLException e) {
-                    logger.error("[Stop Dict Loading] " + e);
-                }
-            }
-            if (connection != null) {
-                try {
-                    connection.close();
-                } catch (SQLException e) {
-                    logger.error("[Stop Dict Loading] " + e);
-                }
-            }
-            logger.info("============================ loadStopDictFromMysql FINISH ============================");
+    private int getPageSize() {
+        String size = props.getProperty("jdbc.page.size");
+        return size == null || size.trim().isEmpty() ? 10000 : Integer.parseInt(size.trim());
+    }
+
+    private static void addDbWord(DictSegment.Builder dict, String theWord) {
+        if (theWord != null) {
+            // 逐词日志只在debug级别输出，百万级词表不再逐行写入日志
+            logger.debug(theWord);
+            dict.add(theWord.trim().toLowerCase().toCharArray());
         }
     }
 
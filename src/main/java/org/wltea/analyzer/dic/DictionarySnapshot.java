@@ -0,0 +1,115 @@
+package org.wltea.analyzer.dic;
+
+/**
+ * 某一版本的主词典、量词词典和停止词词典
+ * 词典加载或重建完成后创建，由Dictionary以一次引用替换整体发布，发布后不再修改引用
+ * IKSegmenter在reset时取得当前版本并在整个词元流中使用，不会在一篇文档中混用新旧词典
+ * 主词典的覆盖层仍接收运行时addWords、disableWords的修改，其读写本身是线程安全的
+ */
+public final class DictionarySnapshot {
+
+	private final OverlayDictTrie mainDict;
+	//主词典的Aho-Corasick自动机，未启用单遍扫描时为null
+	private final AhoCorasickAutomaton mainAutomaton;
+
+	private final DictTrie quantifierDict;
+
+	private final DictTrie stopWords;
+	//版本号，首次加载为1，每次重建加1
+	private final long version;
+
+	DictionarySnapshot(OverlayDictTrie mainDict , AhoCorasickAutomaton mainAutomaton , DictTrie quantifierDict , DictTrie stopWords , long version){
+		this.mainDict = mainDict;
+		this.mainAutomaton = mainAutomaton;
+		this.quantifierDict = quantifierDict;
+		this.stopWords = stopWords;
+		this.version = version;
+	}
+
+	OverlayDictTrie getMainDict(){
+		return this.mainDict;
+	}
+
+	AhoCorasickAutomaton getMainAutomaton(){
+		return this.mainAutomaton;
+	}
+
+	DictTrie getQuantifierDict(){
+		return this.quantifierDict;
+	}
+
+	DictTrie getStopWords(){
+		return this.stopWords;
+	}
+
+	public long getVersion(){
+		return this.version;
+	}
+
+	/**
+	 * 检索匹配主词典
+	 * @return Hit 匹配结果描述
+	 */
+	public Hit matchInMainDict(char[] charArray , int begin , int length){
+		return this.mainDict.match(charArray , begin , length , null);
+	}
+
+	/**
+	 * 检索匹配量词词典
+	 * @return Hit 匹配结果描述
+	 */
+	public Hit matchInQuantifierDict(char[] charArray , int begin , int length){
+		return this.quantifierDict.match(charArray , begin , length , null);
+	}
+
+	/**
+	 * 从begin开始一次遍历主词典，找出所有以begin开头的词
+	 * @param end 匹配区域结束位置（不含）
+	 * @param lengths 按由短到长的顺序存放词的长度
+	 * @param searchHit 复用的Hit，记录遍历停止的位置及该位置的匹配状态
+	 * @return int 词的数目，最多lengths.length个
+	 */
+	public int matchPrefixesInMainDict(char[] charArray , int begin , int end , int[] lengths , Hit searchHit){
+		return this.mainDict.matchPrefixes(charArray , begin , end , lengths , searchHit);
+	}
+
+	/**
+	 * 以主词典推进逐字匹配游标，不产生新的对象
+	 * @param cursor 调用方持有的匹配游标
+	 * @return int 以currentIndex结尾的词的数目，起始位置由cursor.getMatchBegin取得
+	 */
+	public int matchInMainDict(MatchCursor cursor , char[] charArray , int currentIndex){
+		return cursor.advance(this.mainDict , charArray , currentIndex);
+	}
+
+	/**
+	 * 以量词词典推进逐字匹配游标，不产生新的对象
+	 * @param cursor 调用方持有的匹配游标
+	 * @return int 以currentIndex结尾的词的数目，起始位置由cursor.getMatchBegin取得
+	 */
+	public int matchInQuantifierDict(MatchCursor cursor , char[] charArray , int currentIndex){
+		return cursor.advance(this.quantifierDict , charArray , currentIndex);
+	}
+
+	/**
+	 * 将单遍扫描游标绑定到主词典自动机
+	 * 未启用单遍扫描，或覆盖层中有运行时新增、屏蔽的词（自动机不包含这些变化）时不绑定
+	 * @return boolean 是否可以使用单遍扫描
+	 */
+	public boolean bindMainDictScanCursor(ScanCursor cursor){
+		if(this.mainAutomaton == null || this.mainDict.isActive()){
+			cursor.bind(null);
+			return false;
+		}
+		cursor.bind(this.mainAutomaton);
+		return true;
+	}
+
+	/**
+	 * 判断是否是停止词
+	 * @return boolean
+	 */
+	public boolean isStopWord(char[] charArray , int begin , int length){
+		return this.stopWords.match(charArray , begin , length , null).isMatch();
+	}
+}
@@ -0,0 +1,492 @@
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * 双数组词典树（Double-Array Trie）
+ * 整棵词典树只用base、check两个int数组表示，每次状态转移只需读取几次数组：
+ * 子状态 t = (base[s] >> 2) + code(c) ，当且仅当 check[t] == s 时转移成立
+ * base[s] 的最低位标记从根到s的路径是否成词，次低位标记s是否有子节点
+ * 字符先按词典中出现的频率映射为紧凑的编码，高频字编码小，子节点分布更集中
+ * 两个数组可以在堆内，也可以写入预编译词典文件后以内存映射的方式只读加载，直接在堆外查询
+ * 构造完成后不再修改，运行时新增、屏蔽的词由OverlayDictTrie记录
+ */
+class DoubleArrayTrie implements DictTrie {
+
+	//根状态编号
+	static final int ROOT = 0;
+	//根状态没有父状态，check取一个不等于任何状态编号的值，避免其他状态误转移到根状态
+	private static final int ROOT_CHECK = -2;
+	//成词标记
+	private static final int WORD_FLAG = 0x1;
+	//存在子节点标记
+	private static final int NEXT_FLAG = 0x2;
+	//check数组中的空闲标记
+	private static final int EMPTY = -1;
+	//序列化格式标识"IKD"及版本
+	private static final int FILE_MAGIC = 0x494B4400;
+	private static final int FILE_VERSION = 1;
+	//头部：标识、版本、状态数目、编码数目、数组长度
+	private static final int FILE_HEADER_LENGTH = 20;
+
+	//字符到编码的映射，0表示字符不在词典中
+	private final char[] codes;
+	//编码到字符的映射
+	private final char[] chars;
+
+	private final IntBuffer base;
+
+	private final IntBuffer check;
+
+	//已使用的状态数目
+	private final int size;
+	//词的数目，构造或加载时统计一次
+	private final int words;
+
+	private DoubleArrayTrie(char[] codes , char[] chars , IntBuffer base , IntBuffer check , int size , int words){
+		this.codes = codes;
+		this.chars = chars;
+		this.base = base;
+		this.check = check;
+		this.size = size;
+		this.words = words;
+	}
+
+	/**
+	 * 由已加载的词典树构造双数组
+	 * @param root 词典树根节点
+	 * @return DoubleArrayTrie
+	 */
+	static DoubleArrayTrie build(DictSegment root){
+		Builder builder = new Builder(root);
+		builder.insert(ROOT , root);
+		return builder.toTrie();
+	}
+
+	/**
+	 * 状态数目
+	 */
+	int size(){
+		return this.size;
+	}
+
+	/**
+	 * 数组长度
+	 */
+	int capacity(){
+		return this.check.limit();
+	}
+
+	public Hit match(char[] charArray , int begin , int length , Hit searchHit){
+		if(searchHit == null){
+			//如果hit为空，新建
+			searchHit = new Hit();
+			//设置hit的其实文本位置
+			searchHit.setBegin(begin);
+		}else{
+			//否则要将HIT状态重置
+			searchHit.setUnmatch();
+		}
+		return this.match(ROOT , charArray , begin , length , searchHit);
+	}
+
+	public Hit matchWithHit(char[] charArray , int currentIndex , Hit matchedHit){
+		matchedHit.setUnmatch();
+		return this.match(matchedHit.getMatchedState() , charArray , currentIndex , 1 , matchedHit);
+	}
+
+	public int matchPrefixes(char[] charArray , int begin , int end , int[] lengths , Hit searchHit){
+		searchHit.setUnmatch();
+		searchHit.setBegin(begin);
+		searchHit.setEnd(begin - 1);
+		int count = 0;
+		int state = ROOT;
+		for(int i = begin ; i < end && count < lengths.length ; i++){
+			int next = this.next(state , charArray[i]);
+			if(next < 0){
+				break;
+			}
+			state = next;
+			searchHit.setEnd(i);
+			if((this.base.get(state) & WORD_FLAG) != 0){
+				lengths[count++] = i - begin + 1;
+			}
+		}
+		if(state != ROOT){
+			if((this.base.get(state) & WORD_FLAG) != 0){
+				searchHit.setMatch();
+			}
+			if((this.base.get(state) & NEXT_FLAG) != 0){
+				searchHit.setPrefix();
+				searchHit.setMatchedState(this , state);
+			}
+		}
+		return count;
+	}
+
+	private Hit match(int state , char[] charArray , int begin , int length , Hit searchHit){
+		int end = begin + length;
+		for(int i = begin ; i < end ; i++){
+			//设置hit的当前处理位置
+			searchHit.setEnd(i);
+			state = this.next(state , charArray[i]);
+			if(state < 0){
+				//没有对应的转移，hit不匹配
+				return searchHit;
+			}
+		}
+		int b = this.base.get(state);
+		if((b & WORD_FLAG) != 0){
+			//添加HIT状态为完全匹配
+			searchHit.setMatch();
+		}
+		if((b & NEXT_FLAG) != 0){
+			//添加HIT状态为前缀匹配，并记录当前状态
+			searchHit.setPrefix();
+			searchHit.setMatchedState(this , state);
+		}
+		return searchHit;
+	}
+
+	/**
+	 * 状态转移
+	 * @return int 子状态编号，不存在时返回-1
+	 */
+	int next(int state , char c){
+		int code = this.codes[c];
+		int b = this.base.get(state);
+		if(code == 0 || (b & NEXT_FLAG) == 0){
+			return -1;
+		}
+		int t = (b >> 2) + code;
+		if(t < 0 || t >= this.check.limit() || this.check.get(t) != state){
+			return -1;
+		}
+		return t;
+	}
+
+	/**
+	 * 位置state是否是根以外的已用状态
+	 */
+	boolean isState(int state){
+		return state != ROOT && this.check.get(state) != EMPTY;
+	}
+
+	/**
+	 * 父状态编号
+	 */
+	int parentOf(int state){
+		return this.check.get(state);
+	}
+
+	/**
+	 * 转移到state所经过的字符
+	 */
+	char charOf(int state){
+		return this.chars[state - (this.base.get(this.check.get(state)) >> 2)];
+	}
+
+	/**
+	 * 从根到state的路径是否成词
+	 */
+	boolean isWord(int state){
+		return (this.base.get(state) & WORD_FLAG) != 0;
+	}
+
+	/**
+	 * state是否有子状态
+	 */
+	boolean hasNext(int state){
+		return (this.base.get(state) & NEXT_FLAG) != 0;
+	}
+
+	/**
+	 * 序列化后的字节数
+	 */
+	int byteSize(){
+		return FILE_HEADER_LENGTH + align(this.chars.length * 2) + this.capacity() * 8;
+	}
+
+	/**
+	 * 写入预编译词典文件
+	 * 头部之后依次为编码到字符的映射（按4字节对齐）、base数组、check数组，buffer须为小端序
+	 * @param buffer
+	 */
+	void writeTo(ByteBuffer buffer){
+		int capacity = this.capacity();
+		int start = buffer.position();
+		buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(this.size).putInt(this.chars.length).putInt(capacity);
+		buffer.asCharBuffer().put(this.chars);
+		buffer.position(start + FILE_HEADER_LENGTH + align(this.chars.length * 2));
+		for(int i = 0 ; i < capacity ; i++){
+			buffer.putInt(this.base.get(i));
+		}
+		for(int i = 0 ; i < capacity ; i++){
+			buffer.putInt(this.check.get(i));
+		}
+	}
+
+	/**
+	 * 从预编译词典文件的内存映射区域中读取
+	 * base、check数组直接在映射区域上只读查询，同一文件在多个进程间通过页缓存共享
+	 * @param buffer 只包含一个双数组的小端序区域
+	 * @return DoubleArrayTrie
+	 * @throws IOException 格式不正确时抛出
+	 */
+	static DoubleArrayTrie read(ByteBuffer buffer) throws IOException{
+		if(buffer.limit() < FILE_HEADER_LENGTH || buffer.getInt(0) != FILE_MAGIC){
+			throw new IOException("not an ik double array trie");
+		}
+		if(buffer.getInt(4) != FILE_VERSION){
+			throw new IOException("unsupported ik double array trie version " + buffer.getInt(4));
+		}
+		int size = buffer.getInt(8);
+		int charsCount = buffer.getInt(12);
+		int capacity = buffer.getInt(16);
+		int charsLength = align(charsCount * 2);
+		if(charsCount <= 0 || capacity <= 0 || buffer.limit() != FILE_HEADER_LENGTH + charsLength + (long) capacity * 8){
+			throw new IOException("corrupted ik double array trie");
+		}
+		char[] chars = new char[charsCount];
+		char[] codes = new char[Character.MAX_VALUE + 1];
+		buffer.position(FILE_HEADER_LENGTH);
+		buffer.asCharBuffer().get(chars);
+		for(int i = 1 ; i < charsCount ; i++){
+			codes[chars[i]] = (char) i;
+		}
+		buffer.position(FILE_HEADER_LENGTH + charsLength);
+		IntBuffer base = buffer.asIntBuffer();
+		base.limit(capacity);
+		buffer.position(FILE_HEADER_LENGTH + charsLength + capacity * 4);
+		IntBuffer check = buffer.asIntBuffer();
+		check.limit(capacity);
+		base = base.slice().asReadOnlyBuffer();
+		check = check.slice().asReadOnlyBuffer();
+		//文件中不保存词数，加载时统计一次
+		int words = 0;
+		for(int i = 0 ; i < capacity ; i++){
+			if(check.get(i) != EMPTY && (base.get(i) & WORD_FLAG) != 0){
+				words++;
+			}
+		}
+		return new DoubleArrayTrie(codes , chars , base , check , size , words);
+	}
+
+	private static int align(int length){
+		return (length + 3) & ~3;
+	}
+
+	/**
+	 * 将双数组中的词还原为词典树，用于追加新词后重建
+	 * @return DictSegment
+	 */
+	public DictSegment toSegment(){
+		DictSegment root = new DictSegment((char) 0);
+		StringBuilder word = new StringBuilder();
+		for(int state = 1 ; state < this.check.limit() ; state++){
+			if(this.check.get(state) == EMPTY || (this.base.get(state) & WORD_FLAG) == 0){
+				continue;
+			}
+			//沿父状态回溯还原词
+			word.setLength(0);
+			for(int s = state ; s != ROOT ; s = this.check.get(s)){
+				int parent = this.check.get(s);
+				word.append(this.chars[s - (this.base.get(parent) >> 2)]);
+			}
+			root.fillSegment(word.reverse().toString().toCharArray());
+		}
+		return root;
+	}
+
+	/**
+	 * 内存映射加载时base、check数组计入堆外字节数，字符编码映射总在堆内
+	 */
+	public void collectStats(DictStats stats){
+		int capacity = this.capacity();
+		stats.addWords(this.words);
+		stats.addNodes(this.size);
+		stats.addHeapBytes(DictStats.objectBytes(20) + DictStats.arrayBytes(this.codes.length , 2) + DictStats.arrayBytes(this.chars.length , 2));
+		if(this.base.isDirect()){
+			stats.addMappedBytes((long) capacity * 8);
+		}else{
+			stats.addHeapBytes(DictStats.arrayBytes(capacity , 4) * 2);
+		}
+	}
+
+	/**
+	 * 双数组构造器
+	 * 深度优先遍历词典树，为每个节点的全部子节点寻找一个空闲的base偏移
+	 * 空闲位置以双向链表串联，查找时只访问空闲位置
+	 */
+	private static class Builder {
+
+		private final char[] codes = new char[Character.MAX_VALUE + 1];
+
+		private char[] chars;
+
+		private int[] base = new int[0];
+
+		private int[] check = new int[0];
+		//空闲位置链表
+		private int[] nextEmpty = new int[0];
+
+		private int[] prevEmpty = new int[0];
+		//第一个空闲位置，没有时为容量本身
+		private int firstEmpty;
+		//按子节点数目分组记录的查找起点
+		private final int[] groupHints = new int[32];
+		//已使用的最大位置
+		private int maxPos = ROOT;
+
+		private int size = 1;
+
+		private int words;
+
+		Builder(DictSegment root){
+			this.buildCodes(root);
+			this.ensureCapacity(this.chars.length * 2);
+			this.occupy(ROOT , ROOT_CHECK);
+		}
+
+		/**
+		 * 统计各字符出现的次数，按频率从高到低分配编码
+		 */
+		private void buildCodes(DictSegment root){
+			final int[] counts = new int[Character.MAX_VALUE + 1];
+			this.count(root , counts);
+			Integer[] order = new Integer[counts.length];
+			int n = 0;
+			for(int c = 0 ; c < counts.length ; c++){
+				if(counts[c] > 0){
+					order[n++] = c;
+				}
+			}
+			Arrays.sort(order , 0 , n , (a , b) -> counts[b] != counts[a] ? counts[b] - counts[a] : a - b);
+			this.chars = new char[n + 1];
+			for(int i = 0 ; i < n ; i++){
+				int c = order[i];
+				this.codes[c] = (char) (i + 1);
+				this.chars[i + 1] = (char) c;
+			}
+		}
+
+		private void count(DictSegment node , int[] counts){
+			for(DictSegment child : node.getChildren()){
+				counts[child.getNodeChar()]++;
+				this.count(child , counts);
+			}
+		}
+
+		void insert(int state , DictSegment node){
+			int flags = node.isWord() ? WORD_FLAG : 0;
+			if(node.isWord()){
+				this.words++;
+			}
+			DictSegment[] children = node.getChildren();
+			if(children.length == 0){
+				this.base[state] = flags;
+				return;
+			}
+			int[] childCodes = new int[children.length];
+			for(int i = 0 ; i < children.length ; i++){
+				childCodes[i] = this.codes[children[i].getNodeChar()];
+			}
+			int b = this.findBase(childCodes);
+			this.base[state] = (b << 2) | NEXT_FLAG | flags;
+			//先占用全部子节点位置，再递归处理子节点
+			for(int code : childCodes){
+				this.occupy(b + code , state);
+			}
+			this.size += children.length;
+			for(int i = 0 ; i < children.length ; i++){
+				this.insert(b + childCodes[i] , children[i]);
+			}
+		}
+
+		/**
+		 * 查找能容纳全部子节点的base偏移
+		 * 编码最小的子节点必须落在空闲位置上，因此只需沿空闲链表尝试
+		 */
+		private int findBase(int[] childCodes){
+			int min = Integer.MAX_VALUE;
+			int max = 0;
+			for(int code : childCodes){
+				min = Math.min(min , code);
+				max = Math.max(max , code);
+			}
+			//子节点较多的节点在密集区域很难放下，从上次同等规模节点成功的位置开始查找
+			int group = 32 - Integer.numberOfLeadingZeros(childCodes.length);
+			int pos = group > 2 ? Math.max(this.firstEmpty , this.groupHints[group]) : this.firstEmpty;
+			while(pos < this.check.length && this.check[pos] != EMPTY){
+				pos++;
+			}
+			outer:
+			while(true){
+				//空闲链表耗尽或剩余容量不足时扩容
+				this.ensureCapacity(pos + max - min + 1);
+				int b = pos - min;
+				for(int code : childCodes){
+					if(this.check[b + code] != EMPTY){
+						pos = this.nextEmpty[pos];
+						continue outer;
+					}
+				}
+				this.groupHints[group] = pos;
+				return b;
+			}
+		}
+
+		/**
+		 * 占用一个空闲位置
+		 */
+		private void occupy(int pos , int parent){
+			this.check[pos] = parent;
+			this.maxPos = Math.max(this.maxPos , pos);
+			int prev = this.prevEmpty[pos];
+			int next = this.nextEmpty[pos];
+			if(prev < 0){
+				this.firstEmpty = next;
+			}else{
+				this.nextEmpty[prev] = next;
+			}
+			if(next < this.check.length){
+				this.prevEmpty[next] = prev;
+			}
+		}
+
+		private void ensureCapacity(int capacity){
+			if(capacity <= this.check.length){
+				return;
+			}
+			int oldCapacity = this.check.length;
+			int newCapacity = Math.max(capacity , oldCapacity + (oldCapacity >> 1));
+			this.base = Arrays.copyOf(this.base , newCapacity);
+			this.check = Arrays.copyOf(this.check , newCapacity);
+			this.nextEmpty = Arrays.copyOf(this.nextEmpty , newCapacity);
+			this.prevEmpty = Arrays.copyOf(this.prevEmpty , newCapacity);
+			Arrays.fill(this.check , oldCapacity , newCapacity , EMPTY);
+			//将新增位置接到空闲链表尾部
+			int last = -1;
+			for(int pos = this.firstEmpty ; pos < oldCapacity ; pos = this.nextEmpty[pos]){
+				last = pos;
+			}
+			for(int pos = oldCapacity ; pos < newCapacity ; pos++){
+				this.prevEmpty[pos] = pos == oldCapacity ? last : pos - 1;
+				this.nextEmpty[pos] = pos + 1;
+			}
+			if(last < 0){
+				this.firstEmpty = oldCapacity;
+			}else{
+				this.nextEmpty[last] = oldCapacity;
+			}
+		}
+
+		DoubleArrayTrie toTrie(){
+			int length = this.maxPos + 1;
+			return new DoubleArrayTrie(this.codes , this.chars , IntBuffer.wrap(Arrays.copyOf(this.base , length)) , IntBuffer.wrap(Arrays.copyOf(this.check , length)) , this.size , this.words);
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.FSTCompiler;
+import org.apache.lucene.util.fst.IntsRefFSTEnum;
+import org.apache.lucene.util.fst.NoOutputs;
+
+/**
+ * 基于Lucene FST的词典
+ * 词典编译为不可变的字节数组自动机，以UTF-16字符作为输入标签，共享前缀和后缀
+ * FST的中间状态无法以编号保存，前缀匹配后由Hit中保存的arc继续匹配
+ */
+class FSTDictTrie implements DictTrie {
+
+	private static final NoOutputs OUTPUTS = NoOutputs.getSingleton();
+
+	//词典为空时为null
+	private final FST<Object> fst;
+	//词的数目
+	private final int words;
+
+	private FSTDictTrie(FST<Object> fst , int words){
+		this.fst = fst;
+		this.words = words;
+	}
+
+	/**
+	 * 由已加载的词典树构造FST
+	 * 深度优先遍历时子节点按字符有序，词按FST要求的顺序加入
+	 * @param root 词典树根节点
+	 * @return FSTDictTrie
+	 */
+	static FSTDictTrie build(DictSegment root){
+		FSTCompiler<Object> compiler = new FSTCompiler<Object>(FST.INPUT_TYPE.BYTE2 , OUTPUTS);
+		try{
+			int words = add(compiler , root , new IntsRefBuilder());
+			return new FSTDictTrie(compiler.compile() , words);
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static int add(FSTCompiler<Object> compiler , DictSegment node , IntsRefBuilder input) throws IOException{
+		int words = 0;
+		for(DictSegment child : node.getChildren()){
+			input.append(child.getNodeChar());
+			if(child.isWord()){
+				compiler.add(input.get() , OUTPUTS.getNoOutput());
+				words++;
+			}
+			words += add(compiler , child , input);
+			input.setLength(input.length() - 1);
+		}
+		return words;
+	}
+
+	/**
+	 * FST占用的内存字节数
+	 */
+	long ramBytesUsed(){
+		return this.fst == null ? 0 : this.fst.ramBytesUsed();
+	}
+
+	public Hit match(char[] charArray , int begin , int length , Hit searchHit){
+		if(searchHit == null){
+			//如果hit为空，新建
+			searchHit = new Hit();
+			//设置hit的其实文本位置
+			searchHit.setBegin(begin);
+		}else{
+			//否则要将HIT状态重置
+			searchHit.setUnmatch();
+		}
+		if(this.fst == null){
+			searchHit.setEnd(begin);
+			return searchHit;
+		}
+		Scratch s = Scratch.of(searchHit , this.fst);
+		FST.Arc<Object> arc = this.fst.getFirstArc(s.arc);
+		int end = begin + length;
+		for(int i = begin ; i < end ; i++){
+			//设置hit的当前处理位置
+			searchHit.setEnd(i);
+			if(this.next(arc , charArray[i] , s) == null){
+				//没有对应的转移，hit不匹配
+				return searchHit;
+			}
+		}
+		if(arc.isFinal()){
+			//添加HIT状态为完全匹配
+			searchHit.setMatch();
+		}
+		if(FST.targetHasArcs(arc)){
+			//添加HIT状态为前缀匹配
+			searchHit.setPrefix();
+			searchHit.setMatchedState(this , 0);
+		}
+		return searchHit;
+	}
+
+	public Hit matchWithHit(char[] charArray , int currentIndex , Hit matchedHit){
+		Scratch s = matchedHit.getFstScratch();
+		if(s == null || s.fst != this.fst){
+			//遍历状态已不属于本FST，从起始位置重新遍历到当前字符
+			int begin = matchedHit.getBegin();
+			return this.match(charArray , begin , currentIndex - begin + 1 , matchedHit);
+		}
+		matchedHit.setUnmatch();
+		matchedHit.setEnd(currentIndex);
+		//arc停在上一个字符匹配后的状态
+		FST.Arc<Object> arc = s.arc;
+		if(this.next(arc , charArray[currentIndex] , s) == null){
+			return matchedHit;
+		}
+		if(arc.isFinal()){
+			matchedHit.setMatch();
+		}
+		if(FST.targetHasArcs(arc)){
+			matchedHit.setPrefix();
+			matchedHit.setMatchedState(this , 0);
+		}
+		return matchedHit;
+	}
+
+	public int matchPrefixes(char[] charArray , int begin , int end , int[] lengths , Hit searchHit){
+		searchHit.setUnmatch();
+		searchHit.setBegin(begin);
+		searchHit.setEnd(begin - 1);
+		if(this.fst == null){
+			return 0;
+		}
+		Scratch s = Scratch.of(searchHit , this.fst);
+		FST.Arc<Object> arc = this.fst.getFirstArc(s.arc);
+		int count = 0;
+		for(int i = begin ; i < end && count < lengths.length ; i++){
+			if(this.next(arc , charArray[i] , s) == null){
+				break;
+			}
+			searchHit.setEnd(i);
+			if(arc.isFinal()){
+				lengths[count++] = i - begin + 1;
+			}
+		}
+		if(searchHit.getEnd() >= begin){
+			if(arc.isFinal()){
+				searchHit.setMatch();
+			}
+			if(FST.targetHasArcs(arc)){
+				searchHit.setPrefix();
+				searchHit.setMatchedState(this , 0);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 沿字符c转移，转移失败时arc保持不变
+	 * @return FST.Arc 转移后的arc，没有对应的转移时返回null
+	 */
+	private FST.Arc<Object> next(FST.Arc<Object> arc , char c , Scratch s){
+		try{
+			FST.Arc<Object> target = this.fst.findTargetArc(c , arc , s.target , s.reader);
+			if(target != null){
+				arc.copyFrom(target);
+			}
+			return target;
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public DictSegment toSegment(){
+		DictSegment root = new DictSegment((char) 0);
+		if(this.fst == null){
+			return root;
+		}
+		try{
+			IntsRefFSTEnum<Object> words = new IntsRefFSTEnum<Object>(this.fst);
+			IntsRefFSTEnum.InputOutput<Object> word;
+			while((word = words.next()) != null){
+				IntsRef input = word.input;
+				char[] chars = new char[input.length];
+				for(int i = 0 ; i < input.length ; i++){
+					chars[i] = (char) input.ints[input.offset + i];
+				}
+				root.fillSegment(chars);
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+		return root;
+	}
+
+	public void collectStats(DictStats stats){
+		stats.addWords(this.words);
+		stats.addHeapBytes(this.ramBytesUsed());
+	}
+
+	/**
+	 * 遍历FST用的arc与读取器，arc停在最近一次遍历结束的状态
+	 * 保存在调用方持有的Hit中，词典重建后旧的FST只被尚未再次使用的Hit引用，不会长期留在各线程中
+	 */
+	static final class Scratch {
+
+		final FST.Arc<Object> arc = new FST.Arc<Object>();
+
+		final FST.Arc<Object> target = new FST.Arc<Object>();
+		//读取器所属的FST
+		private FST<Object> fst;
+
+		private FST.BytesReader reader;
+
+		/**
+		 * 取得Hit中保存的遍历状态，不存在或属于其他FST时重新创建读取器
+		 */
+		static Scratch of(Hit hit , FST<Object> fst){
+			Scratch s = hit.getFstScratch();
+			if(s == null){
+				s = new Scratch();
+				hit.setFstScratch(s);
+			}
+			if(s.fst != fst){
+				s.fst = fst;
+				s.reader = fst.getBytesReader();
+			}
+			return s;
+		}
+	}
+}
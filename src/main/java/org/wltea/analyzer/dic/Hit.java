@@ -42,6 +42,18 @@ public class Hit {
 	
 	//记录词典匹配过程中，当前匹配到的词典分支节点
 	private DictSegment matchedDictSegment; 
+	//记录词典匹配过程中，当前匹配到的词典树及其状态编号
+	private DictTrie matchedTrie;
+	private int matchedState;
+	//覆盖层查询屏蔽词使用的辅助Hit，随本Hit由调用方持有，按需创建
+	private Hit auxHit;
+	//合并查询的两部词典各自的匹配状态及合并前缀匹配结果的临时数组，随本Hit由调用方持有，按需创建
+	private Hit firstHit;
+	private Hit secondHit;
+	private int[] firstLengths;
+	private int[] secondLengths;
+	//遍历FST的状态，随本Hit由调用方持有，按需创建
+	private FSTDictTrie.Scratch fstScratch;
 	/*
 	 * 词段开始位置
 	 */
@@ -96,6 +108,76 @@ public class Hit {
 	
 	public void setMatchedDictSegment(DictSegment matchedDictSegment) {
 		this.matchedDictSegment = matchedDictSegment;
+		this.matchedTrie = matchedDictSegment;
+	}
+
+	DictTrie getMatchedTrie() {
+		return matchedTrie;
+	}
+
+	int getMatchedState() {
+		return matchedState;
+	}
+
+	/**
+	 * 记录基于状态编号的词典树（如双数组）当前匹配到的状态
+	 */
+	void setMatchedState(DictTrie matchedTrie , int matchedState) {
+		this.matchedTrie = matchedTrie;
+		this.matchedState = matchedState;
+	}
+	
+	/**
+	 * 复合词典树使用的辅助Hit
+	 * 复合词典树以本Hit调用下层词典树返回之后才能使用，下层词典树也可能使用同一个辅助Hit
+	 */
+	Hit getAuxHit() {
+		if(this.auxHit == null){
+			this.auxHit = new Hit();
+		}
+		return this.auxHit;
+	}
+
+	/**
+	 * 合并查询中第一部词典的匹配状态，前缀匹配后由此继续匹配，不与其他词典树共用
+	 */
+	Hit getFirstHit() {
+		if(this.firstHit == null){
+			this.firstHit = new Hit();
+		}
+		return this.firstHit;
+	}
+
+	/**
+	 * 合并查询中第二部词典的匹配状态，前缀匹配后由此继续匹配，不与其他词典树共用
+	 */
+	Hit getSecondHit() {
+		if(this.secondHit == null){
+			this.secondHit = new Hit();
+		}
+		return this.secondHit;
+	}
+
+	int[] getFirstLengths(int size) {
+		if(this.firstLengths == null || this.firstLengths.length < size){
+			this.firstLengths = new int[size];
+		}
+		return this.firstLengths;
+	}
+
+	int[] getSecondLengths(int size) {
+		if(this.secondLengths == null || this.secondLengths.length < size){
+			this.secondLengths = new int[size];
+		}
+		return this.secondLengths;
+	}
+
+	FSTDictTrie.Scratch getFstScratch() {
+		return fstScratch;
+	}
+
+	void setFstScratch(FSTDictTrie.Scratch fstScratch) {
+		this.fstScratch = fstScratch;
 	}
 	
 	public int getBegin() {
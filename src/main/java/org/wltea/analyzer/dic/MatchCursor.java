@@ -0,0 +1,97 @@
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+
+/**
+ * 逐字匹配游标
+ * 由分词器持有并反复使用，记录当前所有未结束的前缀匹配
+ * 每推进一个字符只更新已有的Hit对象和int数组，不产生新的对象
+ */
+public final class MatchCursor {
+
+	//未结束的前缀匹配，下标size之后的Hit留作复用
+	private Hit[] hits = new Hit[8];
+	//未结束的前缀匹配数目
+	private int size;
+	//最近一次推进时成词的起始位置
+	private int[] matchBegins = new int[8];
+	//最近一次推进时成词的数目
+	private int matchCount;
+
+	/**
+	 * 是否还有未结束的前缀匹配
+	 */
+	public boolean isEmpty(){
+		return this.size == 0;
+	}
+
+	/**
+	 * 清空所有未结束的前缀匹配
+	 */
+	public void clear(){
+		this.size = 0;
+		this.matchCount = 0;
+	}
+
+	/**
+	 * 最近一次推进时第i个成词的起始位置
+	 * @param i 小于advance返回的成词数目
+	 * @return int
+	 */
+	public int getMatchBegin(int i){
+		return this.matchBegins[i];
+	}
+
+	/**
+	 * 将游标推进到currentIndex
+	 * 先用当前字符延续已有的前缀匹配，再从词典树根开始匹配当前字符
+	 * @param trie 新的匹配所使用的词典树
+	 * @param charArray
+	 * @param currentIndex
+	 * @return int 以currentIndex结尾的词的数目
+	 */
+	int advance(DictTrie trie , char[] charArray , int currentIndex){
+		this.matchCount = 0;
+		int open = 0;
+		for(int i = 0 ; i < this.size ; i++){
+			Hit hit = this.hits[i];
+			hit.getMatchedTrie().matchWithHit(charArray , currentIndex , hit);
+			if(hit.isMatch()){
+				this.addMatch(hit.getBegin());
+			}
+			if(hit.isPrefix()){
+				//仍是词前缀，保留；被移除的Hit与其交换位置以便复用
+				this.hits[i] = this.hits[open];
+				this.hits[open++] = hit;
+			}
+		}
+		this.size = open;
+
+		//对当前指针位置的字符进行单字匹配
+		if(this.size == this.hits.length){
+			this.hits = Arrays.copyOf(this.hits , this.size << 1);
+		}
+		Hit singleCharHit = this.hits[this.size];
+		if(singleCharHit == null){
+			singleCharHit = new Hit();
+			this.hits[this.size] = singleCharHit;
+		}
+		singleCharHit.setBegin(currentIndex);
+		trie.match(charArray , currentIndex , 1 , singleCharHit);
+		if(singleCharHit.isMatch()){
+			this.addMatch(currentIndex);
+		}
+		if(singleCharHit.isPrefix()){
+			this.size++;
+		}
+		return this.matchCount;
+	}
+
+	private void addMatch(int begin){
+		if(this.matchCount == this.matchBegins.length){
+			this.matchBegins = Arrays.copyOf(this.matchBegins , this.matchCount << 1);
+		}
+		this.matchBegins[this.matchCount++] = begin;
+	}
+
+}
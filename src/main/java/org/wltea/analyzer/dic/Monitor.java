@@ -38,6 +38,16 @@ public class Monitor implements Runnable {
 		this.eTags = null;
 	}
 
+	/**
+	 * @param last_modified 已加载内容的Last-Modified
+	 * @param eTags 已加载内容的ETag
+	 */
+	public Monitor(String location, String last_modified, String eTags) {
+		this.location = location;
+		this.last_modified = last_modified;
+		this.eTags = eTags;
+	}
+
 	public void run() {
 		SpecialPermission.check();
 		AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
@@ -51,7 +61,7 @@ public class Monitor implements Runnable {
 	 *  ①向词库服务器发送Head请求
 	 *  ②从响应中获取Last-Modify、ETags字段值，判断是否变化
 	 *  ③如果未变化，休眠1min，返回第①步
-	 * 	④如果有变化，重新加载词典
+	 * 	④如果有变化，重新下载该词典，只应用新增、删除的词
 	 *  ⑤休眠1min，返回第①步
 	 */
 
@@ -83,10 +93,11 @@ public class Monitor implements Runnable {
 				if (((response.getLastHeader("Last-Modified")!=null) && !response.getLastHeader("Last-Modified").getValue().equalsIgnoreCase(last_modified))
 						||((response.getLastHeader("ETag")!=null) && !response.getLastHeader("ETag").getValue().equalsIgnoreCase(eTags))) {
 
-					// 远程词库有更新,需要重新加载词典，并修改last_modified,eTags
-					Dictionary.getSingleton().reLoadMainDict();
-					last_modified = response.getLastHeader("Last-Modified")==null?null:response.getLastHeader("Last-Modified").getValue();
-					eTags = response.getLastHeader("ETag")==null?null:response.getLastHeader("ETag").getValue();
+					// 远程词库有更新,只应用新增、删除的词，应用成功后才修改last_modified,eTags，下载失败时下次继续尝试
+					if (Dictionary.getSingleton().reLoadRemoteDict(location)) {
+						last_modified = response.getLastHeader("Last-Modified")==null?null:response.getLastHeader("Last-Modified").getValue();
+						eTags = response.getLastHeader("ETag")==null?null:response.getLastHeader("ETag").getValue();
+					}
 				}
 			}else if (response.getStatusLine().getStatusCode()==304) {
 				//没有修改，不做操作
@@ -0,0 +1,201 @@
+package org.wltea.analyzer.dic;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 冻结层加覆盖层的两级词典
+ * 冻结层是加载完成后编译的只读结构（双数组、FST或预编译词典），运行期间不再修改
+ * 覆盖层只记录加载之后通过addWords、disableWords新增和屏蔽的词，在下次重建词典时合并回冻结层
+ * 覆盖层为空时查询直接转交冻结层，不增加任何开销
+ */
+class OverlayDictTrie implements DictTrie {
+
+	private final DictTrie frozen;
+	//加载之后新增的词
+	private final DictSegment added = new DictSegment((char) 0);
+	//加载之后屏蔽的冻结层中的词
+	private final DictSegment disabled = new DictSegment((char) 0);
+	//冻结层与新增词的合并查询
+	private final UnionDictTrie union;
+	//覆盖层是否有内容，写入覆盖层之后才置为true
+	private volatile boolean active;
+
+	OverlayDictTrie(DictTrie frozen){
+		this.frozen = frozen;
+		this.union = new UnionDictTrie(frozen , this.added);
+	}
+
+	/**
+	 * 冻结层
+	 */
+	DictTrie getFrozen(){
+		return this.frozen;
+	}
+
+	/**
+	 * 覆盖层是否有内容
+	 */
+	boolean isActive(){
+		return this.active;
+	}
+
+	public Hit match(char[] charArray , int begin , int length , Hit searchHit){
+		if(!this.active){
+			return this.frozen.match(charArray , begin , length , searchHit);
+		}
+		searchHit = this.union.match(charArray , begin , length , searchHit);
+		this.mask(charArray , searchHit);
+		return searchHit;
+	}
+
+	public Hit matchWithHit(char[] charArray , int currentIndex , Hit matchedHit){
+		//由合并查询从停止的状态继续匹配冻结层和新增词，再去除已屏蔽的词
+		this.union.matchWithHit(charArray , currentIndex , matchedHit);
+		this.mask(charArray , matchedHit);
+		return matchedHit;
+	}
+
+	public int matchPrefixes(char[] charArray , int begin , int end , int[] lengths , Hit searchHit){
+		if(!this.active){
+			return this.frozen.matchPrefixes(charArray , begin , end , lengths , searchHit);
+		}
+		int count = this.union.matchPrefixes(charArray , begin , end , lengths , searchHit);
+		//去除已屏蔽的词
+		int n = 0;
+		for(int i = 0 ; i < count ; i++){
+			if(!this.isDisabled(charArray , begin , lengths[i] , searchHit)){
+				lengths[n++] = lengths[i];
+			}
+		}
+		this.mask(charArray , searchHit);
+		return n;
+	}
+
+	/**
+	 * 去除已屏蔽词的成词状态，前缀匹配后继续由覆盖层匹配
+	 */
+	private void mask(char[] charArray , Hit hit){
+		if(hit.isMatch() && this.isDisabled(charArray , hit.getBegin() , hit.getEnd() - hit.getBegin() + 1 , hit)){
+			boolean prefix = hit.isPrefix();
+			hit.setUnmatch();
+			if(prefix){
+				hit.setPrefix();
+			}
+		}
+		if(hit.isPrefix()){
+			hit.setMatchedState(this , 0);
+		}
+	}
+
+	/**
+	 * 查询屏蔽词时使用hit的辅助Hit，合并查询已经返回，可以复用
+	 */
+	private boolean isDisabled(char[] charArray , int begin , int length , Hit hit){
+		return this.disabled.hasNextNode() && this.disabled.match(charArray , begin , length , hit.getAuxHit()).isMatch();
+	}
+
+	/**
+	 * 覆盖层中是否新增了这个词
+	 */
+	boolean isAdded(char[] charArray){
+		return charArray.length > 0 && this.added.match(charArray , 0 , charArray.length).isMatch();
+	}
+
+	/**
+	 * 在覆盖层中启用一个词
+	 */
+	synchronized void enableWord(char[] charArray){
+		if(charArray.length == 0){
+			return;
+		}
+		this.disabled.disableSegment(charArray);
+		if(!this.frozen.match(charArray , 0 , charArray.length , null).isMatch()){
+			this.added.fillSegment(charArray);
+			this.active = true;
+		}
+	}
+
+	/**
+	 * 在覆盖层中屏蔽一个词
+	 */
+	synchronized void disableWord(char[] charArray){
+		if(charArray.length == 0){
+			return;
+		}
+		this.added.disableSegment(charArray);
+		if(this.frozen.match(charArray , 0 , charArray.length , null).isMatch()){
+			this.disabled.fillSegment(charArray);
+			this.active = true;
+		}
+	}
+
+	public synchronized DictSegment toSegment(){
+		DictSegment root = new DictSegment((char) 0);
+		root.fillSegment(this.frozen.toSegment());
+		this.mergeInto(root);
+		return root;
+	}
+
+	/**
+	 * 屏蔽的词从冻结层的词数中扣除，其节点和内存照常计入
+	 */
+	public void collectStats(DictStats stats){
+		this.frozen.collectStats(stats);
+		this.added.collectStats(stats);
+		DictStats disabledStats = new DictStats();
+		this.disabled.collectStats(disabledStats);
+		stats.addWords(-disabledStats.getWords());
+		stats.addNodes(disabledStats.getNodes());
+		stats.addArrayNodes(disabledStats.getArrayNodes());
+		stats.addTableNodes(disabledStats.getTableNodes());
+		stats.addHeapBytes(disabledStats.getHeapBytes());
+	}
+
+	/**
+	 * 重建词典时将覆盖层合并到新加载的词典树中
+	 * @param dict 新加载、尚未编译的词典树
+	 */
+	synchronized void mergeInto(DictSegment dict){
+		this.mergeInto(dict , Collections.<String>emptySet());
+	}
+
+	/**
+	 * 重建词典时将覆盖层合并到新加载的词典树中
+	 * @param dict 新加载、尚未编译的词典树
+	 * @param excluded 不合并的词，这些词已由词典源重新加载
+	 */
+	synchronized void mergeInto(DictSegment dict , Set<String> excluded){
+		if(excluded.isEmpty()){
+			dict.fillSegment(this.added);
+		}else{
+			for(char[] word : this.added.getWords()){
+				if(!excluded.contains(new String(word))){
+					dict.fillSegment(word);
+				}
+			}
+		}
+		for(char[] word : this.disabled.getWords()){
+			if(!excluded.contains(new String(word))){
+				dict.disableSegment(word);
+			}
+		}
+	}
+
+	/**
+	 * 以重建后的冻结层创建新的两级词典
+	 * 新的冻结层中仍存在的屏蔽词（如预编译词典中的词）继续在覆盖层中屏蔽
+	 * @param frozen 重建后的冻结层
+	 * @param excluded 不再屏蔽的词
+	 * @return OverlayDictTrie
+	 */
+	synchronized OverlayDictTrie rebase(DictTrie frozen , Set<String> excluded){
+		OverlayDictTrie overlay = new OverlayDictTrie(frozen);
+		for(char[] word : this.disabled.getWords()){
+			if(!excluded.contains(new String(word))){
+				overlay.disableWord(word);
+			}
+		}
+		return overlay;
+	}
+}
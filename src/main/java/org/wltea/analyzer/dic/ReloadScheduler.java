@@ -0,0 +1,96 @@
+package org.wltea.analyzer.dic;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Logger;
+import org.wltea.analyzer.help.ESPluginLoggerFactory;
+
+/**
+ * 词典重建调度
+ * 远程词典监控、数据库监控等触发的重建请求都由此提交，窗口期内到达的请求合并为一次重建
+ * 同一时刻最多执行一次重建，重建期间到达的请求在本次重建结束后再合并执行一次
+ */
+final class ReloadScheduler {
+
+	private static final Logger logger = ESPluginLoggerFactory.getLogger(ReloadScheduler.class.getName());
+
+	private final ScheduledExecutorService executor;
+	//合并请求的窗口（毫秒）
+	private final long windowMillis;
+
+	private final Runnable reload;
+	//已提交、尚未开始执行的重建
+	private boolean scheduled;
+	//正在执行重建
+	private boolean running;
+	//尚未执行的请求来源
+	private final Set<String> sources = new LinkedHashSet<String>();
+	//尚未执行的请求数目
+	private int requests;
+
+	/**
+	 * @param executor 执行重建的线程池
+	 * @param windowMillis 合并请求的窗口（毫秒）
+	 * @param reload 重建词典
+	 */
+	ReloadScheduler(ScheduledExecutorService executor , long windowMillis , Runnable reload){
+		this.executor = executor;
+		this.windowMillis = windowMillis;
+		this.reload = reload;
+	}
+
+	/**
+	 * 请求重建，窗口期结束后执行
+	 * @param source 请求来源，用于日志
+	 */
+	void request(String source){
+		this.request(source , this.windowMillis);
+	}
+
+	/**
+	 * 请求重建
+	 * @param source 请求来源，用于日志
+	 * @param delayMillis 没有待执行的重建时，等待合并其他请求的时间（毫秒）
+	 */
+	synchronized void request(String source , long delayMillis){
+		this.sources.add(source);
+		this.requests++;
+		if(this.scheduled){
+			return;
+		}
+		this.scheduled = true;
+		if(!this.running){
+			this.executor.schedule(this::run , delayMillis , TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void run(){
+		String merged;
+		int count;
+		synchronized(this){
+			this.scheduled = false;
+			this.running = true;
+			merged = String.join(", " , this.sources);
+			count = this.requests;
+			this.sources.clear();
+			this.requests = 0;
+		}
+		try{
+			logger.info("[Dict Reloading] {} requests merged into one reload: {}", count, merged);
+			this.reload.run();
+		}catch(RuntimeException e){
+			logger.error("[Dict Reloading] reload failed", e);
+		}finally{
+			synchronized(this){
+				this.running = false;
+				if(this.scheduled){
+					//重建期间又有请求，等待窗口期后再执行一次
+					this.executor.schedule(this::run , this.windowMillis , TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+	}
+}
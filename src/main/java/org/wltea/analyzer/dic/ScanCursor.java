@@ -0,0 +1,45 @@
+package org.wltea.analyzer.dic;
+
+/**
+ * 主词典单遍扫描游标
+ * 由分词器持有并反复使用，逐字读入文本，在每个字符处给出所有在该字符结束的词
+ * 绑定的是绑定时刻的主词典自动机，词典重新加载后需重新绑定
+ */
+public final class ScanCursor {
+
+	//绑定的自动机，未启用单遍扫描时为null
+	private AhoCorasickAutomaton automaton;
+	//自动机当前状态
+	private int state = DoubleArrayTrie.ROOT;
+
+	void bind(AhoCorasickAutomaton automaton){
+		this.automaton = automaton;
+		this.state = DoubleArrayTrie.ROOT;
+	}
+
+	/**
+	 * 读入下一个字符
+	 * @param c
+	 * @param lengths 按由长到短的顺序存放在c处结束的词的长度
+	 * @return int 词的数目，最多lengths.length个
+	 */
+	public int next(char c , int[] lengths){
+		this.state = this.automaton.next(this.state , c);
+		return this.automaton.matches(this.state , lengths);
+	}
+
+	/**
+	 * 已读入的文本是否还可能与后续字符组成词
+	 */
+	public boolean isPrefix(){
+		return this.automaton.isPrefix(this.state);
+	}
+
+	/**
+	 * 回到初始状态，之后读入的字符与之前的文本不再组成词
+	 */
+	public void clear(){
+		this.state = DoubleArrayTrie.ROOT;
+	}
+
+}
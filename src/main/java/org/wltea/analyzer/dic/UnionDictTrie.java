@@ -0,0 +1,121 @@
+package org.wltea.analyzer.dic;
+
+/**
+ * 两部词典合并查询
+ * 用于预编译的只读主词典之上叠加扩展词典、远程词典等加载时才确定的词，两部词典各自保持原有结构
+ * 两部词典的匹配状态分别保存在调用方Hit的firstHit、secondHit中，前缀匹配后各自从停止的状态继续匹配，不重新遍历
+ * 两部词典都可以是合并查询，各自使用自己Hit中的状态
+ */
+class UnionDictTrie implements DictTrie {
+
+	private final DictTrie first;
+
+	private final DictTrie second;
+
+	UnionDictTrie(DictTrie first , DictTrie second){
+		this.first = first;
+		this.second = second;
+	}
+
+	public Hit match(char[] charArray , int begin , int length , Hit searchHit){
+		if(searchHit == null){
+			//如果hit为空，新建
+			searchHit = new Hit();
+			//设置hit的其实文本位置
+			searchHit.setBegin(begin);
+		}
+		Hit firstHit = searchHit.getFirstHit();
+		firstHit.setBegin(searchHit.getBegin());
+		this.first.match(charArray , begin , length , firstHit);
+		Hit secondHit = searchHit.getSecondHit();
+		secondHit.setBegin(searchHit.getBegin());
+		this.second.match(charArray , begin , length , secondHit);
+		return this.combine(searchHit , firstHit , secondHit);
+	}
+
+	public Hit matchWithHit(char[] charArray , int currentIndex , Hit matchedHit){
+		Hit firstHit = matchedHit.getFirstHit();
+		Hit secondHit = matchedHit.getSecondHit();
+		advance(charArray , currentIndex , firstHit);
+		advance(charArray , currentIndex , secondHit);
+		return this.combine(matchedHit , firstHit , secondHit);
+	}
+
+	/**
+	 * 一部词典在上一个字符仍是词前缀时从其停止的状态继续匹配，否则这部词典不再匹配
+	 */
+	private static void advance(char[] charArray , int currentIndex , Hit hit){
+		if(hit.isPrefix() && hit.getEnd() == currentIndex - 1){
+			hit.getMatchedTrie().matchWithHit(charArray , currentIndex , hit);
+		}else{
+			hit.setUnmatch();
+		}
+	}
+
+	/**
+	 * 合并两部词典的匹配结果，任一部成词即成词，任一部是词前缀即可继续匹配
+	 */
+	private Hit combine(Hit searchHit , Hit firstHit , Hit secondHit){
+		searchHit.setUnmatch();
+		searchHit.setEnd(Math.max(firstHit.getEnd() , secondHit.getEnd()));
+		if(firstHit.isMatch() || secondHit.isMatch()){
+			searchHit.setMatch();
+		}
+		if(firstHit.isPrefix() || secondHit.isPrefix()){
+			searchHit.setPrefix();
+			searchHit.setMatchedState(this , 0);
+		}
+		return searchHit;
+	}
+
+	public int matchPrefixes(char[] charArray , int begin , int end , int[] lengths , Hit searchHit){
+		Hit firstHit = searchHit.getFirstHit();
+		int firstCount = this.first.matchPrefixes(charArray , begin , end , lengths , firstHit);
+		Hit secondHit = searchHit.getSecondHit();
+		int[] secondLengths = searchHit.getSecondLengths(lengths.length);
+		int secondCount = this.second.matchPrefixes(charArray , begin , end , secondLengths , secondHit);
+		int[] firstLengths = searchHit.getFirstLengths(lengths.length);
+		System.arraycopy(lengths , 0 , firstLengths , 0 , firstCount);
+		//合并两组由短到长的词长，去除重复
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while((i < firstCount || j < secondCount) && count < lengths.length){
+			int length;
+			if(j >= secondCount || (i < firstCount && firstLengths[i] <= secondLengths[j])){
+				length = firstLengths[i++];
+			}else{
+				length = secondLengths[j++];
+			}
+			if(count == 0 || lengths[count - 1] != length){
+				lengths[count++] = length;
+			}
+		}
+		//遍历停止位置取两部词典中更远的一方，停在该位置的词典共同决定匹配状态，继续匹配时两部词典各自从停止的状态开始
+		int stopEnd = Math.max(firstHit.getEnd() , secondHit.getEnd());
+		searchHit.setUnmatch();
+		searchHit.setBegin(begin);
+		searchHit.setEnd(stopEnd);
+		boolean firstStopped = firstHit.getEnd() == stopEnd;
+		boolean secondStopped = secondHit.getEnd() == stopEnd;
+		if((firstStopped && firstHit.isMatch()) || (secondStopped && secondHit.isMatch())){
+			searchHit.setMatch();
+		}
+		if((firstStopped && firstHit.isPrefix()) || (secondStopped && secondHit.isPrefix())){
+			searchHit.setPrefix();
+			searchHit.setMatchedState(this , 0);
+		}
+		return count;
+	}
+
+	public DictSegment toSegment(){
+		DictSegment root = this.first.toSegment();
+		root.fillSegment(this.second.toSegment());
+		return root;
+	}
+
+	public void collectStats(DictStats stats){
+		this.first.collectStats(stats);
+		this.second.collectStats(stats);
+	}
+}
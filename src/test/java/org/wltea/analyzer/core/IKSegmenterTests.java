@@ -0,0 +1,85 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.plugin.analysis.ik.AnalysisIkPlugin;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wltea.analyzer.cfg.Configuration;
+
+/**
+ * 以插件自带的词典分词，细粒度和智能分词的结果与原有结果一致
+ */
+public class IKSegmenterTests {
+
+	private static Configuration configuration;
+
+	@BeforeClass
+	public static void initDictionary() throws IOException{
+		//复制插件自带的配置和词典，不加载数据库词典
+		Path home = Files.createTempDirectory(Paths.get("target") , "ik-home");
+		Path config = home.resolve("config");
+		Path dictRoot = Files.createDirectories(config.resolve(AnalysisIkPlugin.PLUGIN_NAME));
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("config"))){
+			for(Path file : files){
+				if(!file.getFileName().toString().equals("jdbc-reload.properties")){
+					Files.copy(file , dictRoot.resolve(file.getFileName()));
+				}
+			}
+		}
+		Settings settings = Settings.builder().put("path.home" , home.toString()).build();
+		configuration = new Configuration(new Environment(settings , config) , settings);
+	}
+
+	@Test
+	public void testMaxWordSegmentation() throws IOException{
+		assertSegments(false , "中华人民共和国国歌" ,
+				"中华人民共和国/CN_WORD" , "中华人民/CN_WORD" , "中华/CN_WORD" , "华人/CN_WORD" , "人民共和国/CN_WORD" ,
+				"人民/CN_WORD" , "共和国/CN_WORD" , "共和/CN_WORD" , "国/CN_CHAR" , "国歌/CN_WORD");
+		assertSegments(false , "IK Analyzer是一个结合词典分词和文法分词的中文分词开源工具包。" ,
+				"ik/ENGLISH" , "analyzer/ENGLISH" , "是/CN_CHAR" , "一个/CN_WORD" , "一/TYPE_CNUM" , "个/COUNT" , "结合/CN_WORD" ,
+				"词典/CN_WORD" , "分词/CN_WORD" , "和文/CN_WORD" , "文法/CN_WORD" , "分词/CN_WORD" , "的/CN_CHAR" , "中文/CN_WORD" ,
+				"分词/CN_WORD" , "开源/CN_WORD" , "工具包/CN_WORD" , "工具/CN_WORD" , "包/CN_CHAR");
+		assertSegments(false , "2012年3月15日，张三花了500元买了3台电脑" ,
+				"2012/ARABIC" , "年/COUNT" , "3/ARABIC" , "月/COUNT" , "15/ARABIC" , "日/COUNT" , "张三/CN_WORD" , "三/TYPE_CNUM" ,
+				"花了/CN_WORD" , "500/ARABIC" , "元/COUNT" , "买了/CN_WORD" , "3/ARABIC" , "台电/CN_WORD" , "台/COUNT" , "电脑/CN_WORD");
+		//全角字符转为半角，转换后不再转为小写
+		assertSegments(false , "ＥｌａｓｔｉｃＳｅａｒｃｈ 7.16.3版本发布了" ,
+				"ElasticSearch/ENGLISH" , "7.16.3/ARABIC" , "版本/CN_WORD" , "版/COUNT" , "本/CN_CHAR" , "发布/CN_WORD" , "了/CN_CHAR");
+	}
+
+	@Test
+	public void testSmartSegmentation() throws IOException{
+		assertSegments(true , "中华人民共和国国歌" , "中华人民共和国/CN_WORD" , "国歌/CN_WORD");
+		assertSegments(true , "IK Analyzer是一个结合词典分词和文法分词的中文分词开源工具包。" ,
+				"ik/ENGLISH" , "analyzer/ENGLISH" , "是/CN_CHAR" , "一个/CN_WORD" , "结合/CN_WORD" , "词典/CN_WORD" , "分词/CN_WORD" ,
+				"和/CN_CHAR" , "文法/CN_WORD" , "分词/CN_WORD" , "的/CN_CHAR" , "中文/CN_WORD" , "分词/CN_WORD" , "开源/CN_WORD" , "工具包/CN_WORD");
+		assertSegments(true , "2012年3月15日，张三花了500元买了3台电脑" ,
+				"2012年/TYPE_CQUAN" , "3月/TYPE_CQUAN" , "15日/TYPE_CQUAN" , "张三/CN_WORD" , "花了/CN_WORD" , "500元/TYPE_CQUAN" ,
+				"买了/CN_WORD" , "3台/TYPE_CQUAN" , "电脑/CN_WORD");
+		assertSegments(true , "ＥｌａｓｔｉｃＳｅａｒｃｈ 7.16.3版本发布了" ,
+				"ElasticSearch/ENGLISH" , "7.16.3/ARABIC" , "版本/CN_WORD" , "发布/CN_WORD" , "了/CN_CHAR");
+	}
+
+	private static void assertSegments(boolean useSmart , String text , String... expected) throws IOException{
+		IKSegmenter segmenter = new IKSegmenter(new StringReader(text) , configuration.withUseSmart(useSmart));
+		List<String> lexemes = new ArrayList<String>();
+		Lexeme lexeme;
+		while((lexeme = segmenter.next()) != null){
+			lexemes.add(lexeme.getLexemeText() + "/" + lexeme.getLexemeTypeString());
+		}
+		assertEquals(Arrays.asList(expected) , lexemes);
+	}
+}
@@ -0,0 +1,63 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.wltea.analyzer.dic.DictTestSupport.randomText;
+import static org.wltea.analyzer.dic.DictTestSupport.randomWords;
+import static org.wltea.analyzer.dic.DictTestSupport.segmentOf;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Aho-Corasick自动机单遍扫描与在每个位置逐一匹配DictSegment的结果对比
+ */
+public class AhoCorasickAutomatonTests {
+
+	@Test
+	public void testMatchesSameAsDictSegment(){
+		Random random = new Random(20260301L);
+		char[][] words = randomWords(random , 3000);
+		DictSegment segment = segmentOf(words);
+		AhoCorasickAutomaton automaton = AhoCorasickAutomaton.build(DoubleArrayTrie.build(segmentOf(words)) , true);
+
+		char[] text = randomText(random , 20000);
+		int[] lengths = new int[16];
+		int[] expected = new int[16];
+		int state = DoubleArrayTrie.ROOT;
+		for(int i = 0 ; i < text.length ; i++){
+			state = automaton.next(state , text[i]);
+			int count = automaton.matches(state , lengths);
+			//在i结束的词，由长到短
+			int expectedCount = 0;
+			boolean prefix = false;
+			for(int begin = Math.max(0 , i - 6) ; begin <= i ; begin++){
+				Hit hit = segment.match(text , begin , i - begin + 1 , null);
+				if(hit.isMatch()){
+					expected[expectedCount++] = i - begin + 1;
+				}
+				prefix |= hit.isPrefix();
+			}
+			String at = "end " + i;
+			assertArrayEquals(at , Arrays.copyOf(expected , expectedCount) , Arrays.copyOf(lengths , count));
+			assertEquals(at , prefix , automaton.isPrefix(state));
+		}
+	}
+
+	@Test
+	public void testSharedTrieIsNotCountedTwice(){
+		Random random = new Random(20260302L);
+		DoubleArrayTrie trie = DoubleArrayTrie.build(segmentOf(randomWords(random , 1000)));
+		DictStats trieStats = new DictStats();
+		trie.collectStats(trieStats);
+
+		DictStats shared = new DictStats();
+		AhoCorasickAutomaton.build(trie , false).collectStats(shared);
+		DictStats owned = new DictStats();
+		AhoCorasickAutomaton.build(trie , true).collectStats(owned);
+		assertEquals(0 , shared.getWords());
+		assertEquals(trieStats.getWords() , owned.getWords());
+	}
+}
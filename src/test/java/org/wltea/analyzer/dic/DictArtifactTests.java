@@ -0,0 +1,94 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.wltea.analyzer.dic.DictTestSupport.randomText;
+import static org.wltea.analyzer.dic.DictTestSupport.randomWords;
+import static org.wltea.analyzer.dic.DictTestSupport.segmentOf;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 预编译词典文件的写入、映射加载及损坏文件的识别
+ */
+public class DictArtifactTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndMap() throws IOException{
+		Random random = new Random(20260601L);
+		DictSegment main = segmentOf(randomWords(random , 3000));
+		DictSegment quantifier = segmentOf(randomWords(random , 100));
+		DictSegment stopWords = segmentOf(randomWords(random , 50));
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("main.dat");
+		assertTrue(DictArtifact.write(file , DoubleArrayTrie.build(main) , DoubleArrayTrie.build(quantifier) ,
+				DoubleArrayTrie.build(stopWords) , Arrays.asList("ext_dict=custom/b.dic" , "ext_dict=custom/a.dic")));
+		assertFalse(Files.exists(file.resolveSibling("main.dat.tmp")));
+
+		DictArtifact artifact = DictArtifact.map(file);
+		assertEquals(Arrays.asList("ext_dict=custom/a.dic" , "ext_dict=custom/b.dic") , artifact.getSources());
+		char[] text = randomText(random , 5000);
+		DictTestSupport.assertSameMatches(main , artifact.getMainDict() , text);
+		DictTestSupport.assertSamePrefixes(main , artifact.getMainDict() , text);
+		DictTestSupport.assertSameMatches(quantifier , artifact.getQuantifierDict() , text);
+		DictTestSupport.assertSameMatches(stopWords , artifact.getStopWords() , text);
+	}
+
+	@Test
+	public void testUnchangedContentNotRewritten() throws IOException{
+		DoubleArrayTrie main = DoubleArrayTrie.build(segmentOf(randomWords(new Random(20260602L) , 500)));
+		DoubleArrayTrie empty = DoubleArrayTrie.build(new DictSegment((char) 0));
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("main.dat");
+		assertTrue(DictArtifact.write(file , main , empty , empty , Arrays.<String>asList()));
+		assertFalse(DictArtifact.write(file , main , empty , empty , Arrays.<String>asList()));
+		assertTrue(DictArtifact.write(file , main , empty , empty , Arrays.asList("ext_dict=custom/a.dic")));
+		assertEquals(Arrays.asList("ext_dict=custom/a.dic") , DictArtifact.map(file).getSources());
+	}
+
+	@Test
+	public void testChecksumMismatchRejected() throws IOException{
+		DoubleArrayTrie main = DoubleArrayTrie.build(segmentOf(randomWords(new Random(20260603L) , 500)));
+		DoubleArrayTrie empty = DoubleArrayTrie.build(new DictSegment((char) 0));
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("main.dat");
+		DictArtifact.write(file , main , empty , empty , Arrays.<String>asList());
+		try(RandomAccessFile raf = new RandomAccessFile(file.toFile() , "rw")){
+			long position = raf.length() / 2;
+			raf.seek(position);
+			int b = raf.read();
+			raf.seek(position);
+			raf.write(b ^ 0x01);
+		}
+		assertMapFails(file , "checksum");
+	}
+
+	@Test
+	public void testNotAnArtifactRejected() throws IOException{
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("main.dic");
+		Files.write(file , "中华人民共和国\n北京\n大学\n".getBytes("UTF-8"));
+		assertMapFails(file , "not an ik dictionary file");
+		Files.write(file , new byte[0]);
+		assertMapFails(file , "not an ik dictionary file");
+	}
+
+	private static void assertMapFails(Path file , String message){
+		try{
+			DictArtifact.map(file);
+			fail("expected IOException");
+		}catch(IOException e){
+			assertTrue(e.getMessage() , e.getMessage().contains(message));
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 词典文件读取与按行读取后trim的结果对比
+ */
+public class DictFileReaderTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testBomCrlfAndBlankLines() throws IOException{
+		String content = "\uFEFF中华\r\n  人民 \r\n\r\n共和国\n\t\n\r北京 大学\rlast";
+		assertEquals(Arrays.asList("中华" , "人民" , "共和国" , "北京 大学" , "last") , this.read("main.dic" , content.getBytes(StandardCharsets.UTF_8)));
+		//BOM之后紧跟空白
+		assertEquals(Arrays.asList("中华") , this.read("bom.dic" , "\uFEFF 中华\n".getBytes(StandardCharsets.UTF_8)));
+		assertEquals(Arrays.<String>asList() , this.read("empty.dic" , new byte[0]));
+	}
+
+	@Test
+	public void testMalformedBytesReplaced() throws IOException{
+		byte[] bytes = {'a' , (byte) 0xFF , 'b' , '\n' , 'c'};
+		assertEquals(Arrays.asList("a\uFFFDb" , "c") , this.read("bad.dic" , bytes));
+	}
+
+	@Test
+	public void testLargeFileSameAsLineReader() throws IOException{
+		//多字节字符跨越缓冲区边界，个别行超过缓冲区长度
+		Random random = new Random(20260701L);
+		StringBuilder content = new StringBuilder();
+		for(int i = 0 ; i < 30000 ; i++){
+			if(i % 10000 == 5000){
+				content.append(DictTestSupport.randomWord(random , DictTestSupport.TAILS , 100000 + random.nextInt(100000)));
+			}else{
+				content.append(DictTestSupport.randomWord(random , " " + DictTestSupport.HEADS + DictTestSupport.TAILS , random.nextInt(12)));
+			}
+			content.append(i % 3 == 0 ? "\r\n" : "\n");
+		}
+		String text = content.toString();
+		List<String> expected = lines(text);
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		assertEquals(expected , this.read("main.dic" , bytes));
+
+		Path gzip = this.temporaryFolder.getRoot().toPath().resolve("main.dic.GZ");
+		try(OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))){
+			out.write(bytes);
+		}
+		assertEquals(expected , read(gzip));
+	}
+
+	@Test
+	public void testMissingFile() throws IOException{
+		try{
+			read(this.temporaryFolder.getRoot().toPath().resolve("missing.dic"));
+			fail("expected NoSuchFileException");
+		}catch(NoSuchFileException e){
+			//词典加载时据此区分文件不存在
+		}
+	}
+
+	private List<String> read(String name , byte[] bytes) throws IOException{
+		Path file = this.temporaryFolder.getRoot().toPath().resolve(name);
+		Files.write(file , bytes);
+		return read(file);
+	}
+
+	private static List<String> read(Path file) throws IOException{
+		List<String> words = new ArrayList<String>();
+		DictFileReader.read(file , (charArray , offset , length) -> words.add(new String(charArray , offset , length)));
+		return words;
+	}
+
+	/**
+	 * 原有的逐行读取方式
+	 */
+	private static List<String> lines(String text) throws IOException{
+		List<String> words = new ArrayList<String>();
+		try(BufferedReader reader = new BufferedReader(new StringReader(text))){
+			String line;
+			while((line = reader.readLine()) != null){
+				line = line.trim();
+				if(!line.isEmpty()){
+					words.add(line);
+				}
+			}
+		}
+		return words;
+	}
+}
@@ -0,0 +1,122 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.wltea.analyzer.dic.DictTestSupport.randomText;
+import static org.wltea.analyzer.dic.DictTestSupport.randomWord;
+import static org.wltea.analyzer.dic.DictTestSupport.segmentOf;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * 批量构造的词典树与逐词插入的词典树对比，词数达到阈值且指定线程池时并行构造
+ */
+public class DictSegmentBuilderTests {
+
+	@Test
+	public void testSerialBuildSameAsFillSegment(){
+		char[][] words = randomWords(new Random(20260501L) , 5000);
+		assertSameAsFillSegment(words , builderOf(words).build() , new Random(20260511L));
+		//词数较多时不指定线程池也在调用线程中构造
+		words = randomWords(new Random(20260502L) , 150000);
+		assertSameAsFillSegment(words , builderOf(words).build() , new Random(20260512L));
+	}
+
+	@Test
+	public void testParallelBuildSameAsFillSegment() throws Exception{
+		char[][] words = randomWords(new Random(20260503L) , 150000);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try{
+			assertSameAsFillSegment(words , builderOf(words).build(executor , 4) , new Random(20260513L));
+		}finally{
+			executor.shutdown();
+		}
+		//线程池已关闭时由调用线程构造
+		assertSameAsFillSegment(words , builderOf(words).build(executor , 4) , new Random(20260514L));
+	}
+
+	@Test
+	public void testParallelBuildInsideBusyExecutor() throws Exception{
+		//在唯一的加载线程中构造，提交的线程永远不会开始
+		char[][] words = randomWords(new Random(20260504L) , 150000);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try{
+			Future<DictSegment> built = executor.submit(() -> builderOf(words).build(executor , 4));
+			assertSameAsFillSegment(words , built.get() , new Random(20260515L));
+		}finally{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testEmptyAndSingleCharWords(){
+		DictSegment.Builder builder = new DictSegment.Builder();
+		builder.add(new char[0]);
+		assertEquals(0 , builder.build().getWords().size());
+		builder.add("中".toCharArray());
+		builder.add("中华".toCharArray() , 0 , 1);
+		builder.add("xx中华yy".toCharArray() , 2 , 2);
+		DictSegment root = builder.build();
+		assertEquals(2 , root.getWords().size());
+		assertTrue(root.match("中".toCharArray()).isMatch());
+		assertTrue(root.match("中".toCharArray()).isPrefix());
+		assertTrue(root.match("中华".toCharArray()).isMatch());
+	}
+
+	/**
+	 * 首字分布在较大的编码区间，并行构造时分出足够多的子树，约十分之一的词重复
+	 */
+	private static char[][] randomWords(Random random , int count){
+		char[][] words = new char[count][];
+		for(int i = 0 ; i < count ; i++){
+			if(i > 0 && random.nextInt(10) == 0){
+				words[i] = words[random.nextInt(i)];
+				continue;
+			}
+			char[] tail = randomWord(random , DictTestSupport.TAILS , random.nextInt(6));
+			words[i] = new char[tail.length + 1];
+			words[i][0] = (char) (0x4E00 + random.nextInt(3000));
+			System.arraycopy(tail , 0 , words[i] , 1 , tail.length);
+		}
+		return words;
+	}
+
+	private static DictSegment.Builder builderOf(char[][] words){
+		DictSegment.Builder builder = new DictSegment.Builder();
+		DictSegment.Builder other = new DictSegment.Builder();
+		for(int i = 0 ; i < words.length ; i++){
+			(i % 2 == 0 ? builder : other).add(words[i]);
+		}
+		builder.addAll(other);
+		return builder;
+	}
+
+	private static void assertSameAsFillSegment(char[][] words , DictSegment built , Random random){
+		DictSegment expected = segmentOf(words);
+
+		List<char[]> expectedWords = expected.getWords();
+		List<char[]> builtWords = built.getWords();
+		assertEquals(expectedWords.size() , builtWords.size());
+		for(int i = 0 ; i < expectedWords.size() ; i++){
+			assertEquals(new String(expectedWords.get(i)) , new String(builtWords.get(i)));
+		}
+		DictStats expectedStats = new DictStats();
+		expected.collectStats(expectedStats);
+		DictStats builtStats = new DictStats();
+		built.collectStats(builtStats);
+		assertEquals(expectedStats.getWords() , builtStats.getWords());
+		assertEquals(expectedStats.getNodes() , builtStats.getNodes());
+		assertEquals(expectedStats.getArrayNodes() , builtStats.getArrayNodes());
+		assertEquals(expectedStats.getTableNodes() , builtStats.getTableNodes());
+
+		char[] text = randomText(random , 5000);
+		DictTestSupport.assertSameMatches(expected , built , text);
+		DictTestSupport.assertSamePrefixes(expected , built , text);
+	}
+}
@@ -0,0 +1,121 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 词典树测试共用的随机词典、文本及与DictSegment的匹配结果比较
+ */
+final class DictTestSupport {
+
+	//词首字只出现在词典树第一层，出现次数少、编码大，双数组根节点的base偏移为负数
+	static final String HEADS = "中华人民共和国";
+	//其余字符取自不同的编码区间
+	static final String TAILS = "abcdefghijklmnopqrstuvwxyz0123456789"
+			+ "北京大学生活动物理化学习惯性能源头发展"
+			+ "éüЖあ가０Ａ￮";
+	//文本中额外出现、但不在词典中的字符
+	static final String UNKNOWN = "XYZ!，。一￿";
+
+	private DictTestSupport(){
+	}
+
+	/**
+	 * 以HEADS中的字开头、TAILS中的字组成的随机词，可能重复
+	 */
+	static char[][] randomWords(Random random , int count){
+		char[][] words = new char[count][];
+		for(int i = 0 ; i < words.length ; i++){
+			char[] tail = randomWord(random , TAILS , random.nextInt(6));
+			words[i] = new char[tail.length + 1];
+			words[i][0] = HEADS.charAt(random.nextInt(HEADS.length()));
+			System.arraycopy(tail , 0 , words[i] , 1 , tail.length);
+		}
+		return words;
+	}
+
+	/**
+	 * 混有词典外字符的随机文本
+	 */
+	static char[] randomText(Random random , int length){
+		return randomWord(random , HEADS + TAILS + UNKNOWN , length);
+	}
+
+	static char[] randomWord(Random random , String alphabet , int length){
+		char[] word = new char[length];
+		for(int i = 0 ; i < length ; i++){
+			word[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+		}
+		return word;
+	}
+
+	static DictSegment segmentOf(char[][] words){
+		DictSegment root = new DictSegment((char) 0);
+		for(char[] word : words){
+			root.fillSegment(word);
+		}
+		return root;
+	}
+
+	static void assertHitEquals(Hit expected , Hit actual){
+		String at = "begin " + expected.getBegin() + " end " + expected.getEnd();
+		assertEquals(at , expected.isMatch() , actual.isMatch());
+		assertEquals(at , expected.isPrefix() , actual.isPrefix());
+		assertEquals(at , expected.getBegin() , actual.getBegin());
+		assertEquals(at , expected.getEnd() , actual.getEnd());
+	}
+
+	/**
+	 * 文本中每个位置开始、长度1到7的词段的匹配结果相同
+	 */
+	static void assertSameMatches(DictTrie expected , DictTrie actual , char[] text){
+		for(int begin = 0 ; begin < text.length ; begin++){
+			for(int length = 1 ; length <= 7 && begin + length <= text.length ; length++){
+				Hit expectedHit = expected.match(text , begin , length , null);
+				Hit actualHit = actual.match(text , begin , length , null);
+				String at = new String(text , begin , length);
+				assertEquals(at , expectedHit.isMatch() , actualHit.isMatch());
+				assertEquals(at , expectedHit.isPrefix() , actualHit.isPrefix());
+			}
+		}
+	}
+
+	/**
+	 * 从文本中每个位置开始逐字符matchWithHit继续匹配，每一步的结果相同
+	 */
+	static void assertSameChains(DictTrie expected , DictTrie actual , char[] text){
+		for(int begin = 0 ; begin < text.length ; begin++){
+			Hit expectedHit = expected.match(text , begin , 1 , null);
+			Hit actualHit = actual.match(text , begin , 1 , null);
+			assertHitEquals(expectedHit , actualHit);
+			for(int i = begin + 1 ; i < text.length && expectedHit.isPrefix() ; i++){
+				expectedHit = expectedHit.getMatchedTrie().matchWithHit(text , i , expectedHit);
+				actualHit = actualHit.getMatchedTrie().matchWithHit(text , i , actualHit);
+				assertHitEquals(expectedHit , actualHit);
+			}
+		}
+	}
+
+	/**
+	 * 文本中每个位置开始的全部词相同，遍历停止时能否继续匹配及停止位置相同
+	 */
+	static void assertSamePrefixes(DictTrie expected , DictTrie actual , char[] text){
+		int[] expectedLengths = new int[8];
+		int[] actualLengths = new int[8];
+		Hit expectedHit = new Hit();
+		Hit actualHit = new Hit();
+		for(int begin = 0 ; begin < text.length ; begin++){
+			int expectedCount = expected.matchPrefixes(text , begin , text.length , expectedLengths , expectedHit);
+			int actualCount = actual.matchPrefixes(text , begin , text.length , actualLengths , actualHit);
+			String at = "begin " + begin;
+			assertArrayEquals(at , Arrays.copyOf(expectedLengths , expectedCount) , Arrays.copyOf(actualLengths , actualCount));
+			assertEquals(at , expectedHit.isPrefix() , actualHit.isPrefix());
+			if(expectedHit.isPrefix()){
+				assertEquals(at , expectedHit.getEnd() , actualHit.getEnd());
+			}
+		}
+	}
+}
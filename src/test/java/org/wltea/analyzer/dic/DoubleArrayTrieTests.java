@@ -0,0 +1,77 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.wltea.analyzer.dic.DictTestSupport.assertHitEquals;
+import static org.wltea.analyzer.dic.DictTestSupport.randomText;
+import static org.wltea.analyzer.dic.DictTestSupport.randomWords;
+import static org.wltea.analyzer.dic.DictTestSupport.segmentOf;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * 双数组词典树与DictSegment词典树的匹配结果对比
+ */
+public class DoubleArrayTrieTests {
+
+	@Test
+	public void testMatchSameAsDictSegment(){
+		Random random = new Random(20260101L);
+		char[][] words = randomWords(random , 3000);
+		DictSegment segment = segmentOf(words);
+		DoubleArrayTrie trie = DoubleArrayTrie.build(segmentOf(words));
+
+		char[] text = randomText(random , 20000);
+		for(int begin = 0 ; begin < text.length ; begin++){
+			for(int length = 1 ; length <= 7 && begin + length <= text.length ; length++){
+				assertHitEquals(segment.match(text , begin , length , null) , trie.match(text , begin , length , null));
+			}
+		}
+	}
+
+	@Test
+	public void testMatchWithHitSameAsDictSegment(){
+		Random random = new Random(20260102L);
+		char[][] words = randomWords(random , 3000);
+		DictSegment segment = segmentOf(words);
+		DoubleArrayTrie trie = DoubleArrayTrie.build(segmentOf(words));
+
+		char[] text = randomText(random , 20000);
+		DictTestSupport.assertSameChains(segment , trie , text);
+	}
+
+	@Test
+	public void testMatchPrefixesSameAsDictSegment(){
+		Random random = new Random(20260103L);
+		char[][] words = randomWords(random , 3000);
+		DictSegment segment = segmentOf(words);
+		DoubleArrayTrie trie = DoubleArrayTrie.build(segmentOf(words));
+
+		char[] text = randomText(random , 20000);
+		int[] expectedLengths = new int[8];
+		int[] actualLengths = new int[8];
+		Hit expectedHit = new Hit();
+		Hit actualHit = new Hit();
+		for(int begin = 0 ; begin < text.length ; begin++){
+			int expectedCount = segment.matchPrefixes(text , begin , text.length , expectedLengths , expectedHit);
+			int actualCount = trie.matchPrefixes(text , begin , text.length , actualLengths , actualHit);
+			assertEquals(expectedCount , actualCount);
+			assertArrayEquals(Arrays.copyOf(expectedLengths , expectedCount) , Arrays.copyOf(actualLengths , actualCount));
+			assertHitEquals(expectedHit , actualHit);
+		}
+	}
+
+	@Test
+	public void testEveryWordMatches(){
+		Random random = new Random(20260104L);
+		char[][] words = randomWords(random , 3000);
+		DoubleArrayTrie trie = DoubleArrayTrie.build(segmentOf(words));
+		for(char[] word : words){
+			assertTrue(new String(word) , trie.match(word , 0 , word.length , null).isMatch());
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.wltea.analyzer.dic.DictTestSupport.randomText;
+import static org.wltea.analyzer.dic.DictTestSupport.randomWords;
+import static org.wltea.analyzer.dic.DictTestSupport.segmentOf;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * FST词典与DictSegment词典树的匹配结果对比
+ */
+public class FSTDictTrieTests {
+
+	@Test
+	public void testMatchSameAsDictSegment(){
+		Random random = new Random(20260201L);
+		char[][] words = randomWords(random , 3000);
+		DictTestSupport.assertSameMatches(segmentOf(words) , FSTDictTrie.build(segmentOf(words)) , randomText(random , 10000));
+	}
+
+	@Test
+	public void testMatchWithHitSameAsDictSegment(){
+		Random random = new Random(20260202L);
+		char[][] words = randomWords(random , 3000);
+		DictTestSupport.assertSameChains(segmentOf(words) , FSTDictTrie.build(segmentOf(words)) , randomText(random , 20000));
+	}
+
+	@Test
+	public void testMatchPrefixesSameAsDictSegment(){
+		Random random = new Random(20260203L);
+		char[][] words = randomWords(random , 3000);
+		DictTestSupport.assertSamePrefixes(segmentOf(words) , FSTDictTrie.build(segmentOf(words)) , randomText(random , 20000));
+	}
+
+	@Test
+	public void testToSegmentKeepsEveryWord(){
+		Random random = new Random(20260204L);
+		char[][] words = randomWords(random , 3000);
+		DictSegment expected = segmentOf(words);
+		FSTDictTrie trie = FSTDictTrie.build(segmentOf(words));
+		DictSegment restored = trie.toSegment();
+		for(char[] word : words){
+			assertTrue(new String(word) , trie.match(word , 0 , word.length , null).isMatch());
+		}
+		assertEquals(expected.getWords().size() , restored.getWords().size());
+		DictStats stats = new DictStats();
+		trie.collectStats(stats);
+		assertEquals(expected.getWords().size() , stats.getWords());
+	}
+
+	@Test
+	public void testEmptyDict(){
+		FSTDictTrie trie = FSTDictTrie.build(new DictSegment((char) 0));
+		char[] text = "中华".toCharArray();
+		assertFalse(trie.match(text , 0 , 1 , null).isMatch());
+		assertFalse(trie.match(text , 0 , 1 , null).isPrefix());
+		assertEquals(0 , trie.matchPrefixes(text , 0 , text.length , new int[8] , new Hit()));
+	}
+}
@@ -0,0 +1,166 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.wltea.analyzer.dic.DictTestSupport.randomText;
+import static org.wltea.analyzer.dic.DictTestSupport.randomWords;
+import static org.wltea.analyzer.dic.DictTestSupport.segmentOf;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * 合并查询和覆盖层与等价的DictSegment词典树的匹配结果对比，以及覆盖层在重建时的合并
+ */
+public class OverlayDictTrieTests {
+
+	@Test
+	public void testUnionSameAsMergedSegment(){
+		Random random = new Random(20260401L);
+		char[][] firstWords = randomWords(random , 2000);
+		char[][] secondWords = randomWords(random , 2000);
+		DictSegment expected = segmentOf(firstWords);
+		expected.fillSegment(segmentOf(secondWords));
+		//第一部词典本身也是合并查询
+		DictTrie union = new UnionDictTrie(new UnionDictTrie(DoubleArrayTrie.build(segmentOf(firstWords)) , new DictSegment((char) 0)) ,
+				DoubleArrayTrie.build(segmentOf(secondWords)));
+
+		char[] text = randomText(random , 10000);
+		DictTestSupport.assertSameMatches(expected , union , text);
+		DictTestSupport.assertSameChains(expected , union , text);
+		DictTestSupport.assertSamePrefixes(expected , union , text);
+	}
+
+	@Test
+	public void testInactiveOverlayDelegatesToFrozen(){
+		DoubleArrayTrie frozen = DoubleArrayTrie.build(segmentOf(randomWords(new Random(20260402L) , 100)));
+		OverlayDictTrie overlay = new OverlayDictTrie(frozen);
+		assertFalse(overlay.isActive());
+		assertSame(frozen , overlay.getFrozen());
+		char[] word = frozen.toSegment().getWords().get(0);
+		Hit hit = overlay.match(word , 0 , 1 , null);
+		if(hit.isPrefix()){
+			assertSame(frozen , hit.getMatchedTrie());
+		}
+	}
+
+	@Test
+	public void testEnableAndDisableSameAsEditedSegment(){
+		Random random = new Random(20260403L);
+		char[][] words = randomWords(random , 3000);
+		DictSegment expected = segmentOf(words);
+		OverlayDictTrie overlay = new OverlayDictTrie(DoubleArrayTrie.build(segmentOf(words)));
+		for(char[] word : randomWords(random , 300)){
+			expected.fillSegment(word);
+			overlay.enableWord(word);
+		}
+		for(int i = 0 ; i < 300 ; i++){
+			char[] word = words[random.nextInt(words.length)];
+			expected.disableSegment(word);
+			overlay.disableWord(word);
+		}
+		//屏蔽后重新启用
+		for(int i = 0 ; i < 50 ; i++){
+			char[] word = words[random.nextInt(words.length)];
+			expected.fillSegment(word);
+			overlay.enableWord(word);
+		}
+		assertTrue(overlay.isActive());
+
+		char[] text = randomText(random , 10000);
+		DictTestSupport.assertSameMatches(expected , overlay , text);
+		DictTestSupport.assertSameChains(expected , overlay , text);
+		DictTestSupport.assertSamePrefixes(expected , overlay , text);
+		for(char[] word : expected.getWords()){
+			assertTrue(new String(word) , overlay.match(word , 0 , word.length , null).isMatch());
+		}
+	}
+
+	@Test
+	public void testIsAdded(){
+		OverlayDictTrie overlay = new OverlayDictTrie(DoubleArrayTrie.build(segmentOf(new char[][]{"中华".toCharArray()})));
+		overlay.enableWord("人民".toCharArray());
+		//冻结层中已有的词不写入覆盖层
+		overlay.enableWord("中华".toCharArray());
+		assertTrue(overlay.isAdded("人民".toCharArray()));
+		assertFalse(overlay.isAdded("中华".toCharArray()));
+		assertFalse(overlay.isAdded(new char[0]));
+		overlay.disableWord("人民".toCharArray());
+		assertFalse(overlay.isAdded("人民".toCharArray()));
+		assertFalse(overlay.match("人民".toCharArray() , 0 , 2 , null).isMatch());
+	}
+
+	@Test
+	public void testMergeIntoSkipsExcludedWords(){
+		OverlayDictTrie overlay = new OverlayDictTrie(DoubleArrayTrie.build(segmentOf(words("中华" , "人民" , "共和国"))));
+		overlay.enableWord("北京".toCharArray());
+		overlay.enableWord("大学".toCharArray());
+		overlay.disableWord("人民".toCharArray());
+		overlay.disableWord("共和国".toCharArray());
+
+		DictSegment reloaded = segmentOf(words("中华" , "人民" , "共和国"));
+		Set<String> excluded = new HashSet<String>();
+		excluded.add("大学");
+		excluded.add("共和国");
+		overlay.mergeInto(reloaded , excluded);
+		assertMatches(reloaded , "中华" , true);
+		assertMatches(reloaded , "北京" , true);
+		assertMatches(reloaded , "大学" , false);
+		assertMatches(reloaded , "人民" , false);
+		assertMatches(reloaded , "共和国" , true);
+
+		DictSegment all = segmentOf(words("中华" , "人民" , "共和国"));
+		overlay.mergeInto(all);
+		assertMatches(all , "北京" , true);
+		assertMatches(all , "大学" , true);
+		assertMatches(all , "人民" , false);
+		assertMatches(all , "共和国" , false);
+	}
+
+	@Test
+	public void testRebaseKeepsDisabledWordsOfNewFrozen(){
+		OverlayDictTrie overlay = new OverlayDictTrie(DoubleArrayTrie.build(segmentOf(words("中华" , "人民" , "共和国"))));
+		overlay.enableWord("北京".toCharArray());
+		overlay.disableWord("人民".toCharArray());
+		overlay.disableWord("共和国".toCharArray());
+
+		//新的冻结层（如预编译词典）仍包含屏蔽的词
+		DictTrie frozen = DoubleArrayTrie.build(segmentOf(words("中华" , "人民" , "共和国" , "北京")));
+		OverlayDictTrie rebased = overlay.rebase(frozen , Collections.singleton("共和国"));
+		assertSame(frozen , rebased.getFrozen());
+		assertMatches(rebased , "中华" , true);
+		assertMatches(rebased , "北京" , true);
+		assertMatches(rebased , "人民" , false);
+		assertMatches(rebased , "共和国" , true);
+		assertFalse(rebased.isAdded("北京".toCharArray()));
+	}
+
+	@Test
+	public void testStatsExcludeDisabledWords(){
+		OverlayDictTrie overlay = new OverlayDictTrie(DoubleArrayTrie.build(segmentOf(words("中华" , "人民" , "共和国"))));
+		overlay.enableWord("北京".toCharArray());
+		overlay.disableWord("人民".toCharArray());
+		DictStats stats = new DictStats();
+		overlay.collectStats(stats);
+		assertEquals(3 , stats.getWords());
+		assertEquals(3 , overlay.toSegment().getWords().size());
+	}
+
+	private static char[][] words(String... words){
+		char[][] chars = new char[words.length][];
+		for(int i = 0 ; i < words.length ; i++){
+			chars[i] = words[i].toCharArray();
+		}
+		return chars;
+	}
+
+	private static void assertMatches(DictTrie dict , String word , boolean match){
+		assertEquals(word , match , dict.match(word.toCharArray() , 0 , word.length() , null).isMatch());
+	}
+}
@@ -0,0 +1,97 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 重建请求的合并
+ */
+public class ReloadSchedulerTests {
+
+	private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+	@After
+	public void shutdown(){
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void testRequestsInWindowMerged() throws InterruptedException{
+		AtomicInteger reloads = new AtomicInteger();
+		ReloadScheduler scheduler = new ReloadScheduler(this.executor , 200 , reloads::incrementAndGet);
+		for(int i = 0 ; i < 5 ; i++){
+			scheduler.request("remote-" + i);
+		}
+		//关闭后仍执行已提交的延迟任务
+		this.awaitScheduled();
+		assertEquals(1 , reloads.get());
+	}
+
+	@Test
+	public void testRequestsDuringReloadRunOnceMore() throws InterruptedException{
+		AtomicInteger reloads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(2);
+		ReloadScheduler scheduler = new ReloadScheduler(this.executor , 50 , () -> {
+			if(reloads.incrementAndGet() == 1){
+				started.countDown();
+				await(release);
+			}
+			done.countDown();
+		});
+		scheduler.request("remote" , 0);
+		await(started);
+		for(int i = 0 ; i < 3 ; i++){
+			scheduler.request("db-" + i);
+		}
+		release.countDown();
+		await(done);
+		this.awaitScheduled();
+		assertEquals(2 , reloads.get());
+	}
+
+	@Test
+	public void testFailedReloadDoesNotBlockLaterRequests() throws InterruptedException{
+		AtomicInteger reloads = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(2);
+		ReloadScheduler scheduler = new ReloadScheduler(this.executor , 10 , () -> {
+			try{
+				if(reloads.incrementAndGet() == 1){
+					throw new IllegalStateException("reload failed");
+				}
+			}finally{
+				done.countDown();
+			}
+		});
+		scheduler.request("remote");
+		while(reloads.get() == 0){
+			Thread.sleep(10);
+		}
+		scheduler.request("remote");
+		await(done);
+		assertEquals(2 , reloads.get());
+	}
+
+	private void awaitScheduled() throws InterruptedException{
+		this.executor.shutdown();
+		assertTrue(this.executor.awaitTermination(10 , TimeUnit.SECONDS));
+	}
+
+	private static void await(CountDownLatch latch){
+		try{
+			assertTrue(latch.await(10 , TimeUnit.SECONDS));
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new AssertionError(e);
+		}
+	}
+}